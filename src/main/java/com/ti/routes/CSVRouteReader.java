@@ -1,13 +1,14 @@
 package com.ti.routes;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.csv.CSVFormat;
@@ -24,9 +25,33 @@ public class CSVRouteReader implements RouteReader {
   private static final Pattern regex = Pattern
       .compile("\\[?([0-9]*[.]?[0-9]+),\\s?([0-9]*[.]?[0-9]+),\\s[0-9]+,\\s?[0-9]*[.]?[0-9]+\\]");
 
+  private final double simplificationTolerance;
+
+  public CSVRouteReader() {
+    this(0);
+  }
+
+  /**
+   * Creates reader which simplifies routes with {@link StreamingLineSimplifier} while they are read, so full
+   * routes are never materialised. Pass the reader to {@link Routes#Routes(RouteReader, ResultWriter, boolean)} to
+   * calculate average route from simplified routes.
+   *
+   * <p>With tolerance greater than zero {@link RouteTable#getRouteLength(int)} is calculated from simplified routes and
+   * is slightly shorter than the length of raw routes, which shifts the average length used to filter out extreme
+   * routes. Minimum number of coordinates across routes, used by {@link Routes} as the number of k-means centroids,
+   * drops as well - nearly straight route may be reduced to 2 coordinates, leaving k-means with only 2 centroids.
+   *
+   * @param simplificationTolerance maximum deviation in kilometers of dropped coordinates from the simplified route,
+   * zero turns simplification off
+   */
+  public CSVRouteReader(double simplificationTolerance) {
+    checkArgument(simplificationTolerance >= 0, "simplificationTolerance cannot be negative !");
+    this.simplificationTolerance = simplificationTolerance;
+  }
+
   @Override
-  public  Map<RouteInfo, List<Coordinate2D>> readRoutes(File dataFile) throws IOException {
-    Map<RouteInfo, List<Coordinate2D>> allRoutes = new LinkedHashMap<>();
+  public RouteTable readRoutes(File dataFile) throws IOException {
+    RouteTable allRoutes = new RouteTable();
     try (CSVParser parser = CSVParser.parse(dataFile, Charset.forName("UTF8"), CSVFormat.RFC4180)) {
       for (CSVRecord record : parser) {
         String vesselId = record.get(0);
@@ -43,20 +68,29 @@ public class CSVRouteReader implements RouteReader {
           if (from.equals("DEBRV")) {
             coordinates = Lists.reverse(coordinates);
           }
-          allRoutes.put(new RouteInfo(vesselId, from_seq, to_seq, Coordinate2D.calculateRouteLength(coordinates)), coordinates);
+          allRoutes.addRoute(vesselId, from_seq, to_seq, Coordinate2D.calculateRouteLength(coordinates), coordinates);
         }
       }
     }
     return allRoutes;
   }
 
-  private static List<Coordinate2D> extractCoordinates(String pointsStr) {
+  private List<Coordinate2D> extractCoordinates(String pointsStr) {
     List<Coordinate2D> coordinates = new ArrayList<>();
+    StreamingLineSimplifier simplifier = null;
+    Consumer<Coordinate2D> sink = coordinates::add;
+    if (simplificationTolerance > 0) {
+      simplifier = new StreamingLineSimplifier(simplificationTolerance, coordinates::add);
+      sink = simplifier;
+    }
     Matcher regexMatcher = regex.matcher(pointsStr);
     while (regexMatcher.find()) {
       double longitude = Double.parseDouble(regexMatcher.group(1));
       double latitude = Double.parseDouble(regexMatcher.group(2));
-      coordinates.add(new Coordinate2D(longitude, latitude));
+      sink.accept(new Coordinate2D(longitude, latitude));
+    }
+    if (simplifier != null) {
+      simplifier.finish();
     }
     return coordinates;
   }
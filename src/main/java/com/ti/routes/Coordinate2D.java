@@ -2,6 +2,7 @@ package com.ti.routes;
 
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.abs;
 import static java.lang.Math.atan2;
 import static java.lang.Math.cos;
 import static java.lang.Math.sin;
@@ -24,7 +25,7 @@ import lombok.val;
 @Getter
 public class Coordinate2D {
 
-  private final static double AVERAGE_EARTH_RADIUS = 6371.230d;
+  final static double AVERAGE_EARTH_RADIUS = 6371.230d;
 
   /**
    * The longitude.
@@ -46,12 +47,34 @@ public class Coordinate2D {
    * @return
    */
   public int getNearestPointIndex(List<Coordinate2D> centers) {
+    return getNearestPointIndex(centers, 0);
+  }
+
+  /**
+   * Finds index of the nearest center starting with the hinted one, typically nearest center of the previous, spatially
+   * close point. Centers which are further away in latitude alone than the closest center found so far are skipped
+   * without calculating Haversine distance, the result is the same as of the full scan.
+   *
+   * @param centers list of centers
+   * @param hintIndex index of the center likely to be the nearest one
+   * @return index of the nearest center
+   */
+  public int getNearestPointIndex(List<Coordinate2D> centers, int hintIndex) {
     checkArgument(centers != null, "centers cannot be null !");
-    int bestIndex = 0;
-    double closest = Double.POSITIVE_INFINITY;
+    if (centers.isEmpty()) {
+      return 0;
+    }
+    checkArgument(hintIndex >= 0 && hintIndex < centers.size(), "hintIndex out of range !");
+    int bestIndex = hintIndex;
+    double closest = calculateDistance(centers.get(hintIndex));
     for (int i = 0; i < centers.size(); i++) {
-      val tempDist = calculateDistance(centers.get(i));
-      if (tempDist < closest) {
+      val center = centers.get(i);
+      // great-circle distance is never shorter than the distance along the meridian
+      if (i == hintIndex || latitudeDistanceLowerBound(center) > closest) {
+        continue;
+      }
+      val tempDist = calculateDistance(center);
+      if (tempDist < closest || (tempDist == closest && i < bestIndex)) {
         closest = tempDist;
         bestIndex = i;
       }
@@ -147,6 +170,14 @@ public class Coordinate2D {
   }
 
 
+  /**
+   * Lower bound of distance between this and other geo coordinate in kilometers, slightly reduced to stay below
+   * Haversine distance despite rounding errors
+   */
+  private double latitudeDistanceLowerBound(Coordinate2D otherCoordinate) {
+    return AVERAGE_EARTH_RADIUS * toRadians(abs(this.lat - otherCoordinate.lat)) * (1 - 1e-9);
+  }
+
   /**
    * Calculate distance between this and other geo coordinate in kilometers using Haversine formula which
    * determines the great-circle distance between two points on a sphere given their longitudes
@@ -0,0 +1,337 @@
+package com.ti.routes;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.abs;
+import static java.lang.Math.ceil;
+import static java.lang.Math.cos;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+import static java.lang.Math.toRadians;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Calculates average route as the ridge of a point density raster. Routes are rasterized in a single streaming pass
+ * into a fixed size grid spanning the bounding box of the corridor, each cell recording number of route hits and summed
+ * direction of progress along the routes. The average route is then extracted as the highest density path from the
+ * origin to the destination.
+ *
+ * <p>Cost is O(points) plus a path search over the grid. Memory (12 bytes per cell, optionally off-heap, and 8 bytes
+ * per cell during the path search) is fixed by grid resolution, which makes it a fast alternative to
+ * {@link KMeansClustering} for previews and very large route histories.
+ */
+@Slf4j
+public class DensityGridRouteAverager {
+
+  public static final int DEFAULT_RESOLUTION = 1024;
+
+  /**
+   * Coarser grids merge neighbouring channels into single cells and the path shortcuts the corridor
+   */
+  public static final int MIN_RESOLUTION = 128;
+
+  /**
+   * Finer grids would not fit buffers addressed by int ((resolution + 1)^2 cells of 4 bytes each)
+   */
+  public static final int MAX_RESOLUTION = 16384;
+
+  private static final double SQRT_2 = sqrt(2);
+  private static final double BACKWARD_STEP_PENALTY = 10;
+  private static final double EMPTY_CELL_PENALTY = 1000;
+
+  private final double minLngt;
+  private final double minLat;
+  private final double cellWidth;
+  private final double cellHeight;
+  private final int columns;
+  private final int rows;
+
+  private final IntBuffer hits;
+  private final FloatBuffer directionX;
+  private final FloatBuffer directionY;
+
+  private double originLngt;
+  private double originLat;
+  private double destinationLngt;
+  private double destinationLat;
+  private int routeCount;
+
+  /**
+   * Calculates average route of given routes using density grid
+   *
+   * @param routes routes, all of them oriented from origin to destination
+   * @param resolution number of grid cells along the longer side of the bounding box, between {@link #MIN_RESOLUTION}
+   * and {@link #MAX_RESOLUTION}
+   * @param offHeap whether grid should be allocated in direct (off-heap) memory
+   * @return average route as sequence of ridge cell centers from origin to destination
+   */
+  public static List<Coordinate2D> averageRoute(Collection<List<Coordinate2D>> routes, int resolution,
+      boolean offHeap) {
+    checkArgument(routes != null, "routes cannot be null !");
+    checkArgument(resolution >= MIN_RESOLUTION && resolution <= MAX_RESOLUTION,
+        "resolution must be between %s and %s !", MIN_RESOLUTION, MAX_RESOLUTION);
+    DensityGridRouteAverager averager = new DensityGridRouteAverager(routes, resolution, offHeap);
+    for (List<Coordinate2D> route : routes) {
+      averager.addRoute(route);
+    }
+    return averager.traceRidge();
+  }
+
+  private DensityGridRouteAverager(Collection<List<Coordinate2D>> routes, int resolution, boolean offHeap) {
+    // bounding box of the corridor - cheap min/max scan, rasterization itself is done in single pass
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (List<Coordinate2D> route : routes) {
+      for (Coordinate2D coordinate : route) {
+        minX = min(minX, coordinate.getLngt());
+        minY = min(minY, coordinate.getLat());
+        maxX = max(maxX, coordinate.getLngt());
+        maxY = max(maxY, coordinate.getLat());
+      }
+    }
+    checkArgument(minX <= maxX, "routes cannot be empty !");
+
+    // keep cells square in metres by scaling longitude with cosine of the middle latitude
+    double lngtScale = max(cos(toRadians((minY + maxY) / 2)), 1e-6);
+    double cellSize = max(max((maxX - minX) * lngtScale, maxY - minY) / resolution, 1e-9);
+    this.minLngt = minX;
+    this.minLat = minY;
+    this.cellHeight = cellSize;
+    this.cellWidth = cellSize / lngtScale;
+    this.columns = (int) ((maxX - minX) / cellWidth) + 1;
+    this.rows = (int) ((maxY - minY) / cellHeight) + 1;
+
+    long cellCount = (long) columns * rows;
+    checkArgument(cellCount * Integer.BYTES <= Integer.MAX_VALUE, "grid of %sx%s cells is too large !", columns, rows);
+    int cells = (int) cellCount;
+    if (offHeap) {
+      hits = ByteBuffer.allocateDirect(cells * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+      directionX = ByteBuffer.allocateDirect(cells * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+      directionY = ByteBuffer.allocateDirect(cells * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    } else {
+      hits = IntBuffer.allocate(cells);
+      directionX = FloatBuffer.allocate(cells);
+      directionY = FloatBuffer.allocate(cells);
+    }
+  }
+
+  /**
+   * Rasterizes route into the grid. Segments between subsequent coordinates are walked cell by cell so sparse
+   * routes still leave continuous trail, each cell is counted at most once per visit of the route.
+   */
+  private void addRoute(List<Coordinate2D> route) {
+    if (route.isEmpty()) {
+      return;
+    }
+    Coordinate2D first = route.get(0);
+    Coordinate2D last = route.get(route.size() - 1);
+    originLngt += first.getLngt();
+    originLat += first.getLat();
+    destinationLngt += last.getLngt();
+    destinationLat += last.getLat();
+    routeCount++;
+
+    int lastCell = -1;
+    double prevX = toGridX(first.getLngt());
+    double prevY = toGridY(first.getLat());
+    for (int i = 1; i < route.size(); i++) {
+      double x = toGridX(route.get(i).getLngt());
+      double y = toGridY(route.get(i).getLat());
+      double dx = x - prevX;
+      double dy = y - prevY;
+      double length = sqrt(dx * dx + dy * dy);
+      if (length == 0) {
+        continue;
+      }
+      float unitX = (float) (dx / length);
+      float unitY = (float) (dy / length);
+      int steps = (int) ceil(max(abs(dx), abs(dy)));
+      for (int step = 0; step < steps; step++) {
+        int cell = cellIndex(prevX + dx * step / steps, prevY + dy * step / steps);
+        if (cell != lastCell) {
+          hits.put(cell, hits.get(cell) + 1);
+          directionX.put(cell, directionX.get(cell) + unitX);
+          directionY.put(cell, directionY.get(cell) + unitY);
+          lastCell = cell;
+        }
+      }
+      prevX = x;
+      prevY = y;
+    }
+  }
+
+  /**
+   * Finds the cheapest path of neighbouring cells from the origin cell to the destination cell (Dijkstra). Step cost is
+   * inversely proportional to the density around the entered cell (summed over its 3x3 neighbourhood to follow the
+   * ridge rather than noise). Steps against the direction of progress recorded in the left cell and steps into cells
+   * without any hits are penalised. Path always reaches the destination, crossing empty cells only where routes leave
+   * gaps in the grid.
+   */
+  private List<Coordinate2D> traceRidge() {
+    Coordinate2D origin = new Coordinate2D(originLngt / routeCount, originLat / routeCount);
+    Coordinate2D destination = new Coordinate2D(destinationLngt / routeCount, destinationLat / routeCount);
+    int originCell = gridRow(toGridY(origin.getLat())) * columns + gridColumn(toGridX(origin.getLngt()));
+    int destinationCell = gridRow(toGridY(destination.getLat())) * columns + gridColumn(toGridX(destination.getLngt()));
+
+    float[] costs = new float[columns * rows];
+    Arrays.fill(costs, Float.POSITIVE_INFINITY);
+    int[] previous = new int[columns * rows];
+    BitSet settled = new BitSet(columns * rows);
+    CellQueue queue = new CellQueue();
+    costs[originCell] = 0;
+    previous[originCell] = -1;
+    queue.add(0, originCell);
+    while (!queue.isEmpty()) {
+      int cell = queue.poll();
+      if (settled.get(cell)) {
+        continue;
+      }
+      settled.set(cell);
+      if (cell == destinationCell) {
+        break;
+      }
+      int column = cell % columns;
+      int row = cell / columns;
+      float forwardX = directionX.get(cell);
+      float forwardY = directionY.get(cell);
+      for (int dy = -1; dy <= 1; dy++) {
+        for (int dx = -1; dx <= 1; dx++) {
+          int nextColumn = column + dx;
+          int nextRow = row + dy;
+          if ((dx == 0 && dy == 0) || nextColumn < 0 || nextColumn >= columns || nextRow < 0 || nextRow >= rows) {
+            continue;
+          }
+          int next = nextRow * columns + nextColumn;
+          if (settled.get(next)) {
+            continue;
+          }
+          double stepCost = (dx != 0 && dy != 0 ? SQRT_2 : 1) / (neighbourhoodHits(nextColumn, nextRow) + 1);
+          if (dx * forwardX + dy * forwardY < 0) {
+            stepCost *= BACKWARD_STEP_PENALTY;
+          }
+          if (hits.get(next) == 0) {
+            stepCost *= EMPTY_CELL_PENALTY;
+          }
+          float cost = (float) (costs[cell] + stepCost);
+          if (cost < costs[next]) {
+            costs[next] = cost;
+            previous[next] = cell;
+            queue.add(cost, next);
+          }
+        }
+      }
+    }
+
+    List<Coordinate2D> ridge = new ArrayList<>();
+    int emptyCells = 0;
+    for (int cell = destinationCell; cell != originCell; cell = previous[cell]) {
+      if (hits.get(cell) == 0) {
+        emptyCells++;
+      }
+      ridge.add(new Coordinate2D(minLngt + (cell % columns + 0.5) * cellWidth,
+          minLat + (cell / columns + 0.5) * cellHeight));
+    }
+    if (emptyCells > 0) {
+      log.warn("Ridge crosses {} cells without any route, grid of {}x{} cells may be too fine for the routes",
+          emptyCells, columns, rows);
+    }
+    // path was collected from the destination, replace end cell centers with averaged end points
+    if (!ridge.isEmpty()) {
+      ridge.set(0, destination);
+    } else {
+      ridge.add(destination);
+    }
+    ridge.add(origin);
+    Collections.reverse(ridge);
+    return ridge;
+  }
+
+  private int neighbourhoodHits(int column, int row) {
+    int sum = 0;
+    for (int y = max(row - 1, 0); y <= min(row + 1, rows - 1); y++) {
+      for (int x = max(column - 1, 0); x <= min(column + 1, columns - 1); x++) {
+        sum += hits.get(y * columns + x);
+      }
+    }
+    return sum;
+  }
+
+  private double toGridX(double lngt) {
+    return (lngt - minLngt) / cellWidth;
+  }
+
+  private double toGridY(double lat) {
+    return (lat - minLat) / cellHeight;
+  }
+
+  private int gridColumn(double x) {
+    return min(max((int) x, 0), columns - 1);
+  }
+
+  private int gridRow(double y) {
+    return min(max((int) y, 0), rows - 1);
+  }
+
+  private int cellIndex(double x, double y) {
+    return gridRow(y) * columns + gridColumn(x);
+  }
+
+  /**
+   * Binary min-heap of cells keyed by path cost, both packed into single long (bits of non-negative float keep their
+   * order when compared as int)
+   */
+  private static class CellQueue {
+
+    private long[] heap = new long[1024];
+    private int size;
+
+    private void add(float cost, int cell) {
+      if (size == heap.length) {
+        heap = Arrays.copyOf(heap, size * 2);
+      }
+      long entry = (long) Float.floatToIntBits(cost) << 32 | cell;
+      int index = size++;
+      while (index > 0 && heap[(index - 1) / 2] > entry) {
+        heap[index] = heap[(index - 1) / 2];
+        index = (index - 1) / 2;
+      }
+      heap[index] = entry;
+    }
+
+    private int poll() {
+      int cell = (int) heap[0];
+      long last = heap[--size];
+      int index = 0;
+      while (2 * index + 1 < size) {
+        int child = 2 * index + 1;
+        if (child + 1 < size && heap[child + 1] < heap[child]) {
+          child++;
+        }
+        if (heap[child] >= last) {
+          break;
+        }
+        heap[index] = heap[child];
+        index = child;
+      }
+      heap[index] = last;
+      return cell;
+    }
+
+    private boolean isEmpty() {
+      return size == 0;
+    }
+  }
+}
@@ -0,0 +1,431 @@
+package com.ti.routes;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import com.google.common.io.Files;
+import com.google.common.io.LittleEndianDataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Implementation of {@link ResultWriter} which writes routes to the binary FlatGeobuf file, optionally with packed
+ * Hilbert R-tree index, so they can be memory mapped and range read instead of parsed.
+ *
+ * @see <a href="https://flatgeobuf.org">FlatGeobuf</a>
+ */
+public class FlatGeobufResultWriter implements ResultWriter {
+
+  public static final int DEFAULT_INDEX_NODE_SIZE = 16;
+
+  private static final byte[] MAGIC_BYTES = {0x66, 0x67, 0x62, 0x03, 0x66, 0x67, 0x62, 0x00};
+  private static final byte GEOMETRY_TYPE_LINE_STRING = 2;
+  private static final byte COLUMN_TYPE_DOUBLE = 10;
+  private static final byte COLUMN_TYPE_STRING = 11;
+  private static final int WGS84 = 4326;
+
+  // slots of FlatGeobuf flatbuffer tables
+  private static final int HEADER_NAME = 0;
+  private static final int HEADER_ENVELOPE = 1;
+  private static final int HEADER_GEOMETRY_TYPE = 2;
+  private static final int HEADER_COLUMNS = 7;
+  private static final int HEADER_FEATURES_COUNT = 8;
+  private static final int HEADER_INDEX_NODE_SIZE = 9;
+  private static final int HEADER_CRS = 10;
+  private static final int CRS_ORG = 0;
+  private static final int CRS_CODE = 1;
+  private static final int COLUMN_NAME = 0;
+  private static final int COLUMN_TYPE = 1;
+  private static final int GEOMETRY_XY = 1;
+  private static final int FEATURE_GEOMETRY = 0;
+  private static final int FEATURE_PROPERTIES = 1;
+
+  // columns, index in the array is column index used in feature properties
+  private static final String[] COLUMN_NAMES = {"Description", "vesselId", "from_seq", "to_seq", "routeLength"};
+  private static final byte[] COLUMN_TYPES = {COLUMN_TYPE_STRING, COLUMN_TYPE_STRING, COLUMN_TYPE_STRING,
+      COLUMN_TYPE_STRING, COLUMN_TYPE_DOUBLE};
+
+  private final int indexNodeSize;
+
+  public FlatGeobufResultWriter() {
+    this(DEFAULT_INDEX_NODE_SIZE);
+  }
+
+  /**
+   * @param indexNodeSize node size of packed Hilbert R-tree index, zero writes features in input order without index
+   */
+  public FlatGeobufResultWriter(int indexNodeSize) {
+    checkArgument(indexNodeSize == 0 || (indexNodeSize >= 2 && indexNodeSize <= 0xFFFF),
+        "indexNodeSize must be zero or between 2 and 65535 !");
+    this.indexNodeSize = indexNodeSize;
+  }
+
+  @Override
+  public void writeResult(List<Coordinate2D> result, RouteTable routes, int[] routeIds, File outputFile)
+      throws IOException {
+
+    checkArgument(result != null, "Results cannot be null !");
+    checkArgument(routes != null, "Routes cannot be null !");
+    checkArgument(routeIds != null, "Route IDs cannot be null !");
+    checkArgument(outputFile != null, "Output file cannot be null !");
+
+    double[] envelope = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+        Double.NEGATIVE_INFINITY};
+    expand(envelope, result);
+    for (int routeId : routeIds) {
+      expand(envelope, routes.getCoordinates(routeId));
+    }
+    byte[] header = encodeHeader(Files.getNameWithoutExtension(outputFile.getName()), envelope, routeIds.length + 1);
+
+    try (LittleEndianDataOutputStream out = new LittleEndianDataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(outputFile)))) {
+      out.write(MAGIC_BYTES);
+      out.write(header);
+
+      if (indexNodeSize == 0) {
+        // no index - stream features straight to the file
+        out.write(encodeFeature(result, avgRouteProperties(result)));
+        for (int routeId : routeIds) {
+          out.write(encodeFeature(routes.getCoordinates(routeId), routeProperties(routes, routeId)));
+        }
+      } else {
+        // index precedes features, so features have to be encoded and sorted first
+        List<EncodedFeature> features = new ArrayList<>(routeIds.length + 1);
+        features.add(new EncodedFeature(result, encodeFeature(result, avgRouteProperties(result))));
+        for (int routeId : routeIds) {
+          List<Coordinate2D> coordinates = routes.getCoordinates(routeId);
+          features.add(new EncodedFeature(coordinates, encodeFeature(coordinates, routeProperties(routes, routeId))));
+        }
+        sortByHilbertIndex(features, envelope);
+        writeIndex(features, out);
+        for (EncodedFeature feature : features) {
+          out.write(feature.bytes);
+        }
+      }
+      out.flush();
+    }
+  }
+
+  private static void expand(double[] envelope, List<Coordinate2D> coordinates) {
+    for (Coordinate2D coordinate : coordinates) {
+      envelope[0] = min(envelope[0], coordinate.getLngt());
+      envelope[1] = min(envelope[1], coordinate.getLat());
+      envelope[2] = max(envelope[2], coordinate.getLngt());
+      envelope[3] = max(envelope[3], coordinate.getLat());
+    }
+  }
+
+  private byte[] encodeHeader(String name, double[] envelope, long featuresCount) {
+    Table[] columns = new Table[COLUMN_NAMES.length];
+    for (int i = 0; i < COLUMN_NAMES.length; i++) {
+      columns[i] = new Table().add(COLUMN_NAME, COLUMN_NAMES[i]).add(COLUMN_TYPE, COLUMN_TYPES[i]);
+    }
+    Table header = new Table()
+        .add(HEADER_NAME, name)
+        .add(HEADER_ENVELOPE, envelope)
+        .add(HEADER_GEOMETRY_TYPE, GEOMETRY_TYPE_LINE_STRING)
+        .add(HEADER_COLUMNS, columns)
+        .add(HEADER_FEATURES_COUNT, featuresCount)
+        .add(HEADER_INDEX_NODE_SIZE, (short) indexNodeSize)
+        .add(HEADER_CRS, new Table().add(CRS_ORG, "EPSG").add(CRS_CODE, WGS84));
+    return FlatBufferEncoder.encodeSizePrefixed(header);
+  }
+
+  private static byte[] encodeFeature(List<Coordinate2D> coordinates, byte[] properties) {
+    double[] xy = new double[coordinates.size() * 2];
+    int i = 0;
+    for (Coordinate2D coordinate : coordinates) {
+      xy[i++] = coordinate.getLngt();
+      xy[i++] = coordinate.getLat();
+    }
+    Table feature = new Table()
+        .add(FEATURE_GEOMETRY, new Table().add(GEOMETRY_XY, xy))
+        .add(FEATURE_PROPERTIES, properties);
+    return FlatBufferEncoder.encodeSizePrefixed(feature);
+  }
+
+  private static byte[] avgRouteProperties(List<Coordinate2D> result) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (LittleEndianDataOutputStream out = new LittleEndianDataOutputStream(bytes)) {
+      writeStringProperty(out, 0, "Avg route");
+      writeStringProperty(out, 2, "");
+      writeStringProperty(out, 3, "");
+      writeDoubleProperty(out, 4, Coordinate2D.calculateRouteLength(result));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] routeProperties(RouteTable routes, int routeId) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (LittleEndianDataOutputStream out = new LittleEndianDataOutputStream(bytes)) {
+      writeStringProperty(out, 1, routes.getVesselId(routeId));
+      writeStringProperty(out, 2, routes.getFromSeq(routeId));
+      writeStringProperty(out, 3, routes.getToSeq(routeId));
+      writeDoubleProperty(out, 4, routes.getRouteLength(routeId));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeStringProperty(LittleEndianDataOutputStream out, int column, String value)
+      throws IOException {
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(column);
+    out.writeInt(utf8.length);
+    out.write(utf8);
+  }
+
+  private static void writeDoubleProperty(LittleEndianDataOutputStream out, int column, double value)
+      throws IOException {
+    out.writeShort(column);
+    out.writeDouble(value);
+  }
+
+  private static void sortByHilbertIndex(List<EncodedFeature> features, double[] envelope) {
+    double width = envelope[2] - envelope[0];
+    double height = envelope[3] - envelope[1];
+    for (EncodedFeature feature : features) {
+      feature.hilbertIndex = HilbertCurve.index((feature.bounds[0] + feature.bounds[2]) / 2,
+          (feature.bounds[1] + feature.bounds[3]) / 2, envelope[0], envelope[1], width, height);
+    }
+    features.sort(Comparator.comparingLong(feature -> feature.hilbertIndex));
+  }
+
+  /**
+   * Writes packed Hilbert R-tree - levels of nodes from the root to the leaves, each leaf holding bounds of single
+   * feature and its byte offset in features section, each inner node holding bounds and index of its first child
+   */
+  private void writeIndex(List<EncodedFeature> features, LittleEndianDataOutputStream out) throws IOException {
+    List<Integer> levelNumNodes = new ArrayList<>();
+    int n = features.size();
+    int numNodes = n;
+    levelNumNodes.add(n);
+    do {
+      n = (n + indexNodeSize - 1) / indexNodeSize;
+      numNodes += n;
+      levelNumNodes.add(n);
+    } while (n != 1);
+
+    // levels are stored from the root, leaves are at the end
+    int[] levelStarts = new int[levelNumNodes.size()];
+    int levelEnd = numNodes;
+    for (int level = 0; level < levelNumNodes.size(); level++) {
+      levelStarts[level] = levelEnd - levelNumNodes.get(level);
+      levelEnd = levelStarts[level];
+    }
+
+    double[] bounds = new double[numNodes * 4];
+    long[] offsets = new long[numNodes];
+    long featureOffset = 0;
+    for (int i = 0; i < features.size(); i++) {
+      int node = levelStarts[0] + i;
+      System.arraycopy(features.get(i).bounds, 0, bounds, node * 4, 4);
+      offsets[node] = featureOffset;
+      featureOffset += features.get(i).bytes.length;
+    }
+    for (int level = 0; level < levelStarts.length - 1; level++) {
+      int pos = levelStarts[level];
+      int end = pos + levelNumNodes.get(level);
+      int parent = levelStarts[level + 1];
+      while (pos < end) {
+        offsets[parent] = pos;
+        System.arraycopy(bounds, pos * 4, bounds, parent * 4, 4);
+        for (int child = 0; child < indexNodeSize && pos < end; child++, pos++) {
+          bounds[parent * 4] = min(bounds[parent * 4], bounds[pos * 4]);
+          bounds[parent * 4 + 1] = min(bounds[parent * 4 + 1], bounds[pos * 4 + 1]);
+          bounds[parent * 4 + 2] = max(bounds[parent * 4 + 2], bounds[pos * 4 + 2]);
+          bounds[parent * 4 + 3] = max(bounds[parent * 4 + 3], bounds[pos * 4 + 3]);
+        }
+        parent++;
+      }
+    }
+
+    for (int node = 0; node < numNodes; node++) {
+      for (int i = 0; i < 4; i++) {
+        out.writeDouble(bounds[node * 4 + i]);
+      }
+      out.writeLong(offsets[node]);
+    }
+  }
+
+  private static class EncodedFeature {
+
+    private final double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+        Double.NEGATIVE_INFINITY};
+    private final byte[] bytes;
+    private long hilbertIndex;
+
+    private EncodedFeature(List<Coordinate2D> coordinates, byte[] bytes) {
+      expand(bounds, coordinates);
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * Flatbuffer table, values are scalars (Byte, Short, Integer, Long) or references to String, byte[], double[],
+   * nested Table or Table[]
+   */
+  private static class Table {
+
+    private final TreeMap<Integer, Object> fields = new TreeMap<>();
+
+    private Table add(int slot, Object value) {
+      fields.put(slot, value);
+      return this;
+    }
+  }
+
+  /**
+   * Minimal flatbuffer encoder writing size prefixed buffers front to back, every table is followed by the objects it
+   * references so all offsets point forward as flatbuffers require. Alignment is relative to the size prefix.
+   */
+  private static class FlatBufferEncoder {
+
+    private ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+
+    private static byte[] encodeSizePrefixed(Table root) {
+      FlatBufferEncoder encoder = new FlatBufferEncoder();
+      encoder.reserve(8);
+      encoder.buffer.position(8);
+      int rootPosition = encoder.writeTable(root);
+      encoder.buffer.putInt(0, encoder.buffer.position() - 4);
+      encoder.buffer.putInt(4, rootPosition - 4);
+      return Arrays.copyOf(encoder.buffer.array(), encoder.buffer.position());
+    }
+
+    private int writeTable(Table table) {
+      // lay out inline fields, the largest first to minimise padding
+      List<Entry<Integer, Object>> fields = new ArrayList<>(table.fields.entrySet());
+      fields.sort(Comparator.comparingInt(field -> -inlineSize(field.getValue())));
+      int slots = table.fields.isEmpty() ? 0 : table.fields.lastKey() + 1;
+      short[] fieldOffsets = new short[slots];
+      int tableSize = 4;
+      for (Entry<Integer, Object> field : fields) {
+        int size = inlineSize(field.getValue());
+        tableSize = (tableSize + size - 1) / size * size;
+        fieldOffsets[field.getKey()] = (short) tableSize;
+        tableSize += size;
+      }
+
+      align(2);
+      int vtablePosition = buffer.position();
+      reserve(4 + 2 * slots);
+      buffer.putShort((short) (4 + 2 * slots));
+      buffer.putShort((short) tableSize);
+      for (short fieldOffset : fieldOffsets) {
+        buffer.putShort(fieldOffset);
+      }
+
+      align(8);
+      int tablePosition = buffer.position();
+      reserve(tableSize);
+      buffer.putInt(tablePosition, tablePosition - vtablePosition);
+      buffer.position(tablePosition + tableSize);
+      for (Entry<Integer, Object> field : fields) {
+        int position = tablePosition + fieldOffsets[field.getKey()];
+        Object value = field.getValue();
+        if (value instanceof Byte) {
+          buffer.put(position, (Byte) value);
+        } else if (value instanceof Short) {
+          buffer.putShort(position, (Short) value);
+        } else if (value instanceof Integer) {
+          buffer.putInt(position, (Integer) value);
+        } else if (value instanceof Long) {
+          buffer.putLong(position, (Long) value);
+        } else {
+          // referenced object may grow the buffer, so it has to be written before the offset is patched
+          int referencedPosition = writeReferenced(value);
+          buffer.putInt(position, referencedPosition - position);
+        }
+      }
+      return tablePosition;
+    }
+
+    private int writeReferenced(Object value) {
+      if (value instanceof Table) {
+        return writeTable((Table) value);
+      }
+      align(4);
+      if (value instanceof double[]) {
+        // vector elements have to be aligned, not the length preceding them
+        if (buffer.position() % 8 == 0) {
+          align(8, 4);
+        }
+        double[] doubles = (double[]) value;
+        int position = buffer.position();
+        reserve(4 + 8 * doubles.length);
+        buffer.putInt(doubles.length);
+        for (double d : doubles) {
+          buffer.putDouble(d);
+        }
+        return position;
+      }
+      if (value instanceof Table[]) {
+        Table[] tables = (Table[]) value;
+        int position = buffer.position();
+        reserve(4 + 4 * tables.length);
+        buffer.putInt(tables.length);
+        buffer.position(position + 4 + 4 * tables.length);
+        for (int i = 0; i < tables.length; i++) {
+          int elementPosition = position + 4 + 4 * i;
+          int tablePosition = writeTable(tables[i]);
+          buffer.putInt(elementPosition, tablePosition - elementPosition);
+        }
+        return position;
+      }
+      boolean isString = value instanceof String;
+      byte[] bytes = isString ? ((String) value).getBytes(StandardCharsets.UTF_8) : (byte[]) value;
+      int position = buffer.position();
+      reserve(4 + bytes.length + 1);
+      buffer.putInt(bytes.length);
+      buffer.put(bytes);
+      if (isString) {
+        buffer.put((byte) 0);
+      }
+      return position;
+    }
+
+    private static int inlineSize(Object value) {
+      if (value instanceof Byte) {
+        return 1;
+      } else if (value instanceof Short) {
+        return 2;
+      } else if (value instanceof Long) {
+        return 8;
+      }
+      return 4;
+    }
+
+    private void align(int alignment) {
+      align(alignment, 0);
+    }
+
+    private void align(int alignment, int extra) {
+      int padding = (alignment - buffer.position() % alignment) % alignment + extra;
+      reserve(padding);
+      buffer.position(buffer.position() + padding);
+    }
+
+    private void reserve(int bytes) {
+      if (buffer.remaining() < bytes) {
+        ByteBuffer grown = ByteBuffer.allocate(max(buffer.capacity() * 2, buffer.position() + bytes))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+      }
+    }
+  }
+}
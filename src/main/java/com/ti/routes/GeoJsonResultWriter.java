@@ -25,14 +25,18 @@ import java.util.stream.Collectors;
 import lombok.val;
 
 /**
- * Implementation of {@link ResultWriter} which contains single public method to write result route to the GeoJson file
+ * Implementation of {@link ResultWriter} which writes result route, optionally with the routes it was calculated from,
+ * to the GeoJson file
  */
 public class GeoJsonResultWriter implements ResultWriter {
 
   @Override
-  public void writeResult(List<Coordinate2D> results, File outputFile) throws IOException {
+  public void writeResult(List<Coordinate2D> results, RouteTable routes, int[] routeIds, File outputFile)
+      throws IOException {
 
     checkArgument(results != null, "Results cannot be null !");
+    checkArgument(routes != null, "Routes cannot be null !");
+    checkArgument(routeIds != null, "Route IDs cannot be null !");
     checkArgument(outputFile != null, "Output file cannot be null !");
 
     val resultProperties = ImmutableMap.<String, JsonElement>builder()
@@ -46,6 +50,10 @@ public class GeoJsonResultWriter implements ResultWriter {
     Feature resultFeature = new Feature(toGeoGson(results), resultProperties, Optional.absent());
     List<Feature> resultFeatures = new ArrayList<>();
     resultFeatures.add(resultFeature);
+    for (int routeId : routeIds) {
+      resultFeatures.add(
+          new Feature(toGeoGson(routes.getCoordinates(routeId)), toRouteProperties(routes, routeId), Optional.absent()));
+    }
 
     FeatureCollection resultFeatureCollection = new FeatureCollection(resultFeatures);
 
@@ -60,6 +68,16 @@ public class GeoJsonResultWriter implements ResultWriter {
 
   }
 
+  private ImmutableMap<String, JsonElement> toRouteProperties(RouteTable routes, int routeId) {
+    return ImmutableMap.<String, JsonElement>builder()
+        .put("vesselId", new JsonPrimitive(routes.getVesselId(routeId)))
+        .put("from_seq", new JsonPrimitive(routes.getFromSeq(routeId)))
+        .put("to_seq", new JsonPrimitive(routes.getToSeq(routeId)))
+        .put("routeLength", new JsonPrimitive(routes.getRouteLength(routeId)))
+        .put("stroke", new JsonPrimitive("red"))
+        .put("stroke-opacity", new JsonPrimitive(0.3)).build();
+  }
+
   private Geometry<?> toGeoGson(List<Coordinate2D> simplifiedCoordinates) {
     return new com.github.filosganga.geogson.model.LineString(
         new LinearPositions(toGeoGsonPositions(simplifiedCoordinates)));
@@ -0,0 +1,139 @@
+package com.ti.routes;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps 2d coordinates onto Hilbert space filling curve. Points close to each other on the curve are close to each
+ * other in space, so ordering by Hilbert index keeps spatially coherent data together.
+ */
+public class HilbertCurve {
+
+  /**
+   * Maximum value of single coordinate of the curve (curve of order 16)
+   */
+  public static final int MAX_COORDINATE = (1 << 16) - 1;
+
+  private HilbertCurve() {
+  }
+
+  /**
+   * Sorts coordinates by Hilbert index within their bounding box, so subsequent coordinates are spatially close
+   *
+   * @param coordinates list of geo coordinates
+   * @return new list of the same coordinates ordered along Hilbert curve
+   */
+  public static List<Coordinate2D> sort(List<Coordinate2D> coordinates) {
+    checkArgument(coordinates != null, "coordinates cannot be null !");
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (Coordinate2D coordinate : coordinates) {
+      minX = min(minX, coordinate.getLngt());
+      minY = min(minY, coordinate.getLat());
+      maxX = max(maxX, coordinate.getLngt());
+      maxY = max(maxY, coordinate.getLat());
+    }
+
+    // sort keys holding Hilbert index in upper and position in lower half, sign flipped to sort them as unsigned
+    long[] keys = new long[coordinates.size()];
+    for (int i = 0; i < keys.length; i++) {
+      Coordinate2D coordinate = coordinates.get(i);
+      long index = index(coordinate.getLngt(), coordinate.getLat(), minX, minY, maxX - minX, maxY - minY);
+      keys[i] = (index << 32 | i) ^ Long.MIN_VALUE;
+    }
+    Arrays.sort(keys);
+
+    List<Coordinate2D> sorted = new ArrayList<>(keys.length);
+    for (long key : keys) {
+      sorted.add(coordinates.get((int) key));
+    }
+    return sorted;
+  }
+
+  /**
+   * Calculates Hilbert index of coordinate within given bounding box
+   *
+   * @param x x coordinate (longitude)
+   * @param y y coordinate (latitude)
+   * @param minX minimum x of bounding box
+   * @param minY minimum y of bounding box
+   * @param width width of bounding box
+   * @param height height of bounding box
+   * @return Hilbert index in range 0 .. 2^32-1
+   */
+  public static long index(double x, double y, double minX, double minY, double width, double height) {
+    int gridX = width == 0 ? 0 : (int) Math.floor(MAX_COORDINATE * (x - minX) / width);
+    int gridY = height == 0 ? 0 : (int) Math.floor(MAX_COORDINATE * (y - minY) / height);
+    return index(gridX, gridY);
+  }
+
+  /**
+   * Calculates Hilbert index of grid cell using branch free algorithm
+   *
+   * @param x x coordinate in range 0 .. {@link #MAX_COORDINATE}
+   * @param y y coordinate in range 0 .. {@link #MAX_COORDINATE}
+   * @return Hilbert index in range 0 .. 2^32-1
+   * @see <a href="https://github.com/rawrunprotected/hilbert_curves">Hilbert curves</a>
+   */
+  public static long index(int x, int y) {
+    checkArgument(x >= 0 && x <= MAX_COORDINATE, "x out of range !");
+    checkArgument(y >= 0 && y <= MAX_COORDINATE, "y out of range !");
+
+    int a = x ^ y;
+    int b = 0xFFFF ^ a;
+    int c = 0xFFFF ^ (x | y);
+    int d = x & (y ^ 0xFFFF);
+
+    int aa = a | (b >>> 1);
+    int bb = (a >>> 1) ^ a;
+    int cc = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+    int dd = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    aa = (a & (a >>> 2)) ^ (b & (b >>> 2));
+    bb = (a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2));
+    cc ^= (a & (c >>> 2)) ^ (b & (d >>> 2));
+    dd ^= (b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2));
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    aa = (a & (a >>> 4)) ^ (b & (b >>> 4));
+    bb = (a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4));
+    cc ^= (a & (c >>> 4)) ^ (b & (d >>> 4));
+    dd ^= (b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4));
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    cc ^= (a & (c >>> 8)) ^ (b & (d >>> 8));
+    dd ^= (b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8));
+
+    a = cc ^ (cc >>> 1);
+    b = dd ^ (dd >>> 1);
+
+    int i0 = x ^ y;
+    int i1 = b | (0xFFFF ^ (i0 | a));
+
+    return ((long) interleave(i1) << 1 | interleave(i0)) & 0xFFFFFFFFL;
+  }
+
+  private static int interleave(int value) {
+    value = (value | (value << 8)) & 0x00FF00FF;
+    value = (value | (value << 4)) & 0x0F0F0F0F;
+    value = (value | (value << 2)) & 0x33333333;
+    return (value | (value << 1)) & 0x55555555;
+  }
+}
@@ -19,7 +19,8 @@ public class KMeansClustering {
    * in the clusters (they all converge  and stop changing positions)
    *
    * @param centers initial cluster centroids
-   * @param dataset containing 'cloud' of 2D  geo coordinates
+   * @param dataset containing 'cloud' of 2D  geo coordinates, preferably spatially ordered (see {@link
+   * HilbertCurve#sort(List)}) so nearest centers of subsequent points are likely the same
    */
   public static List<Coordinate2D> kmeans(List<Coordinate2D> centers, List<Coordinate2D> dataset) {
     boolean converged;
@@ -42,8 +43,10 @@ public class KMeansClustering {
     for (int i = 0; i < centers.size(); i++) {
       clusters.add(new ArrayList<>());
     }
+    // nearest center of the previous point is a good first guess when dataset is spatially ordered
+    int index = 0;
     for (Coordinate2D data : dataset) {
-      int index = data.getNearestPointIndex(centers);
+      index = data.getNearestPointIndex(centers, index);
       clusters.get(index).add(data);
     }
     return clusters;
@@ -5,10 +5,15 @@ import java.io.IOException;
 import java.util.List;
 
 /**
- * Interface which contains single method to write result route to the file
+ * Interface which contains methods to write result route, optionally with the routes it was calculated from, to the
+ * file
  */
 public interface ResultWriter {
 
-  void writeResult(List<Coordinate2D> result, File outputFile) throws IOException;
+  default void writeResult(List<Coordinate2D> result, File outputFile) throws IOException {
+    writeResult(result, new RouteTable(), new int[0], outputFile);
+  }
+
+  void writeResult(List<Coordinate2D> result, RouteTable routes, int[] routeIds, File outputFile) throws IOException;
 
 }
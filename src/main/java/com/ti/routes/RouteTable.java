@@ -0,0 +1,135 @@
+package com.ti.routes;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar store of routes identified by dense int IDs assigned in reading order. Vessel IDs and sequence numbers are
+ * dictionary encoded, route metadata is kept in parallel primitive arrays indexed by route ID, so lookups do not
+ * allocate and subsets of routes are represented by arrays of route IDs instead of copied maps.
+ */
+public class RouteTable {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final List<String> vesselIdDictionary = new ArrayList<>();
+  private final Map<String, Integer> vesselIdCodes = new HashMap<>();
+  private final List<String> sequenceDictionary = new ArrayList<>();
+  private final Map<String, Integer> sequenceCodes = new HashMap<>();
+
+  private int size;
+  private int[] vesselIds = new int[INITIAL_CAPACITY];
+  private int[] fromSeqs = new int[INITIAL_CAPACITY];
+  private int[] toSeqs = new int[INITIAL_CAPACITY];
+  private double[] routeLengths = new double[INITIAL_CAPACITY];
+  private final List<List<Coordinate2D>> coordinates = new ArrayList<>(INITIAL_CAPACITY);
+
+  /**
+   * Adds route to the table
+   *
+   * @return ID of added route
+   */
+  public int addRoute(String vesselId, String fromSeq, String toSeq, double routeLength,
+      List<Coordinate2D> routeCoordinates) {
+    checkArgument(vesselId != null, "vesselId cannot be null !");
+    checkArgument(fromSeq != null, "fromSeq cannot be null !");
+    checkArgument(toSeq != null, "toSeq cannot be null !");
+    checkArgument(routeCoordinates != null, "routeCoordinates cannot be null !");
+    if (size == vesselIds.length) {
+      int capacity = size * 2;
+      vesselIds = Arrays.copyOf(vesselIds, capacity);
+      fromSeqs = Arrays.copyOf(fromSeqs, capacity);
+      toSeqs = Arrays.copyOf(toSeqs, capacity);
+      routeLengths = Arrays.copyOf(routeLengths, capacity);
+    }
+    vesselIds[size] = encode(vesselId, vesselIdDictionary, vesselIdCodes);
+    fromSeqs[size] = encode(fromSeq, sequenceDictionary, sequenceCodes);
+    toSeqs[size] = encode(toSeq, sequenceDictionary, sequenceCodes);
+    routeLengths[size] = routeLength;
+    coordinates.add(routeCoordinates);
+    return size++;
+  }
+
+  /**
+   * @return number of routes, route IDs are 0 .. size-1
+   */
+  public int size() {
+    return size;
+  }
+
+  public String getVesselId(int routeId) {
+    return vesselIdDictionary.get(vesselIds[checkRouteId(routeId)]);
+  }
+
+  public String getFromSeq(int routeId) {
+    return sequenceDictionary.get(fromSeqs[checkRouteId(routeId)]);
+  }
+
+  public String getToSeq(int routeId) {
+    return sequenceDictionary.get(toSeqs[checkRouteId(routeId)]);
+  }
+
+  /**
+   * @return length of the route in kilometers
+   */
+  public double getRouteLength(int routeId) {
+    return routeLengths[checkRouteId(routeId)];
+  }
+
+  public List<Coordinate2D> getCoordinates(int routeId) {
+    return coordinates.get(checkRouteId(routeId));
+  }
+
+  /**
+   * @return view of coordinates of given routes
+   */
+  public List<List<Coordinate2D>> getCoordinates(int[] routeIds) {
+    checkArgument(routeIds != null, "routeIds cannot be null !");
+    return Lists.transform(Ints.asList(routeIds), this::getCoordinates);
+  }
+
+  /**
+   * @return route metadata as single object, e.g. for logging
+   */
+  public RouteInfo getRouteInfo(int routeId) {
+    return new RouteInfo(getVesselId(routeId), getFromSeq(routeId), getToSeq(routeId), getRouteLength(routeId));
+  }
+
+  /**
+   * Selects routes which length is within given range (exclusive)
+   *
+   * @return ascending IDs of selected routes
+   */
+  public int[] filterByRouteLength(double minLength, double maxLength) {
+    int[] routeIds = new int[size];
+    int count = 0;
+    for (int routeId = 0; routeId < size; routeId++) {
+      if (routeLengths[routeId] > minLength && routeLengths[routeId] < maxLength) {
+        routeIds[count++] = routeId;
+      }
+    }
+    return Arrays.copyOf(routeIds, count);
+  }
+
+  private int checkRouteId(int routeId) {
+    checkArgument(routeId >= 0 && routeId < size, "routeId out of range !");
+    return routeId;
+  }
+
+  private static int encode(String value, List<String> dictionary, Map<String, Integer> codes) {
+    Integer code = codes.get(value);
+    if (code == null) {
+      code = dictionary.size();
+      dictionary.add(value);
+      codes.put(value, code);
+    }
+    return code;
+  }
+}
@@ -1,16 +1,17 @@
 package com.ti.routes;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.DoubleSummaryStatistics;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 
@@ -25,6 +26,35 @@ public class Routes {
   public static final String OUTPUT_GEO_JSON_FILENAME = "DEBRV_DEHAM_avg_route.geojson";
   public static final int CUT_OFF_DISTANCE_FROM_AVG = 9;
 
+  private final RouteReader routeReader;
+  private final ResultWriter resultWriter;
+  private final boolean writeFilteredRoutes;
+
+  public Routes() {
+    this(new GeoJsonResultWriter(), false);
+  }
+
+  /**
+   * @param resultWriter writer of the average route
+   * @param writeFilteredRoutes whether routes the average route was calculated from should be written with it
+   */
+  public Routes(ResultWriter resultWriter, boolean writeFilteredRoutes) {
+    this(new CSVRouteReader(), resultWriter, writeFilteredRoutes);
+  }
+
+  /**
+   * @param routeReader reader of the input routes, e.g. {@link CSVRouteReader} simplifying routes while they are read
+   * @param resultWriter writer of the average route
+   * @param writeFilteredRoutes whether routes the average route was calculated from should be written with it
+   */
+  public Routes(RouteReader routeReader, ResultWriter resultWriter, boolean writeFilteredRoutes) {
+    checkArgument(routeReader != null, "routeReader cannot be null !");
+    checkArgument(resultWriter != null, "resultWriter cannot be null !");
+    this.routeReader = routeReader;
+    this.resultWriter = resultWriter;
+    this.writeFilteredRoutes = writeFilteredRoutes;
+  }
+
   public static void main(String[] args) throws IOException {
     val path = Paths.get(INPUT_CSV_PATH);
     val inputCsvFile = path.toFile();
@@ -41,26 +71,18 @@ public class Routes {
    */
   public  void calculateAverageRoute(File inputCsvFile,File outputGeoJsonFile) throws IOException {
 
-    val routeReader = new CSVRouteReader();
-    log.info("Reading routes from {}",inputCsvFile.getAbsolutePath());
-    val allRoutes = routeReader.readRoutes(inputCsvFile);
-    val minCoordinates = getMinimumNumberOfCoordinates(allRoutes);
-
-    // Calculate avg route cength
-    double avgRouteLength  =  calculateRouteAverageLength(allRoutes);
-
-    // Filter out routes of extreme length which are apparent not intentional routes (Intended to different port and then returning back to 2nd port
-    // and mistakes (too short routes leading over land)
-    // +-25 km cutoff is somewhat arbitrary number to get rid of extremes. In test set  filtering 91.5% routes remain, 8.5% being fibered out
-
-    val filteredRoutes = filterOutExtremeRoutes(allRoutes, avgRouteLength ,avgRouteLength/CUT_OFF_DISTANCE_FROM_AVG);
-    log.info("Filtered routes size : {}", filteredRoutes.size());
+    val inputRoutes = readFilteredRoutes(inputCsvFile);
+    val allRoutes = inputRoutes.allRoutes;
+    val filteredRouteIds = inputRoutes.filteredRouteIds;
+    val minCoordinates = inputRoutes.minCoordinates;
 
     // Perform route simplification by reducing number of coordinates in the routes, using minimum number of coordinates as target size for simplification
 
-    val simplifiedCoordinatesMatrix = simplifyCoordinates(minCoordinates, filteredRoutes);
+    val simplifiedCoordinatesMatrix = simplifyCoordinates(minCoordinates, allRoutes, filteredRouteIds);
 
-    val coordinateCloud = getCoordinatesAsList(simplifiedCoordinatesMatrix);
+    // Order coordinate cloud along Hilbert curve so spatially close coordinates are processed together, flattened
+    // matrix jumps along the whole corridor with every route
+    val coordinateCloud = HilbertCurve.sort(getCoordinatesAsList(simplifiedCoordinatesMatrix));
 
     log.info("Coordinate cloud size : {} ", coordinateCloud.size());
 
@@ -74,29 +96,82 @@ public class Routes {
     val avgRoute = KMeansClustering.kmeans(centralCoordinates, coordinateCloud);
     log.info("Average route calculation using k-means clustering took {} ms", System.currentTimeMillis() - start);
 
-    // write result GeoJson
-    val resultWriter = new GeoJsonResultWriter();
+    // write result
+    log.info("Writing average route to {}", outputGeoJsonFile.getAbsolutePath());
+    writeResult(avgRoute, allRoutes, filteredRouteIds, outputGeoJsonFile);
+  }
+
+  /**
+   * Calculates average route from CSV using single pass density grid instead of k-means clustering, fast alternative
+   * for previews and very large route histories
+   * @param inputCsvFile
+   * @param outputGeoJsonFile
+   * @throws IOException
+   */
+  public void calculateAverageRouteUsingDensityGrid(File inputCsvFile, File outputGeoJsonFile) throws IOException {
+
+    val inputRoutes = readFilteredRoutes(inputCsvFile);
+    val allRoutes = inputRoutes.allRoutes;
+    val filteredRouteIds = inputRoutes.filteredRouteIds;
+
+    long start = System.currentTimeMillis();
+    log.info("Calculating average route using density grid");
+    val ridge = DensityGridRouteAverager
+        .averageRoute(allRoutes.getCoordinates(filteredRouteIds), DensityGridRouteAverager.DEFAULT_RESOLUTION, true);
+    // ridge has one coordinate per grid cell, reduce it to the same size as k-means result
+    val avgRoute = Arrays.asList(VisvalingamLineSimplifier.simplify(ridge.toArray(new Coordinate2D[0]), inputRoutes.minCoordinates));
+    log.info("Average route calculation using density grid took {} ms", System.currentTimeMillis() - start);
+
     log.info("Writing average route to {}", outputGeoJsonFile.getAbsolutePath());
-    resultWriter.writeResult(avgRoute, outputGeoJsonFile);
+    writeResult(avgRoute, allRoutes, filteredRouteIds, outputGeoJsonFile);
+  }
+
+  /**
+   * Reads routes with the route reader and selects the ones of non extreme length, shared by all average route
+   * calculations
+   */
+  private InputRoutes readFilteredRoutes(File inputCsvFile) throws IOException {
+    log.info("Reading routes from {}",inputCsvFile.getAbsolutePath());
+    val allRoutes = routeReader.readRoutes(inputCsvFile);
+    val minCoordinates = getMinimumNumberOfCoordinates(allRoutes);
+
+    // Calculate avg route cength
+    double avgRouteLength  =  calculateRouteAverageLength(allRoutes);
+
+    // Filter out routes of extreme length which are apparent not intentional routes (Intended to different port and then returning back to 2nd port
+    // and mistakes (too short routes leading over land)
+    // +-25 km cutoff is somewhat arbitrary number to get rid of extremes. In test set  filtering 91.5% routes remain, 8.5% being fibered out
+
+    val filteredRouteIds = filterOutExtremeRoutes(allRoutes, avgRouteLength ,avgRouteLength/CUT_OFF_DISTANCE_FROM_AVG);
+    log.info("Filtered routes size : {}", filteredRouteIds.length);
+    return new InputRoutes(allRoutes, filteredRouteIds, minCoordinates);
+  }
+
+  private void writeResult(List<Coordinate2D> avgRoute, RouteTable routes, int[] filteredRouteIds, File outputFile)
+      throws IOException {
+    if (writeFilteredRoutes) {
+      resultWriter.writeResult(avgRoute, routes, filteredRouteIds, outputFile);
+    } else {
+      resultWriter.writeResult(avgRoute, outputFile);
+    }
   }
 
   private List<Coordinate2D> getCoordinatesAsList(Coordinate2D[][] simplifiedCoordinatesMatrix) {
     return Arrays.stream(simplifiedCoordinatesMatrix).flatMap(c -> Arrays.stream(c)).collect(Collectors.toList());
   }
 
-  private Coordinate2D[][] simplifyCoordinates(int routeSize,
-      Map<RouteInfo, List<Coordinate2D>> filteredRoutes) {
-    int numberOfRoutes = filteredRoutes.size();
+  private Coordinate2D[][] simplifyCoordinates(int routeSize, RouteTable routes, int[] filteredRouteIds) {
+    int numberOfRoutes = filteredRouteIds.length;
     Coordinate2D[][] simplifiedCoordinatesMatrix = new Coordinate2D[numberOfRoutes][routeSize];
     int routeIndex = 0;
 
-    for (Entry<RouteInfo, List<Coordinate2D>> entry : filteredRoutes.entrySet()) {
-      RouteInfo routeInfo = entry.getKey();
-      List<Coordinate2D> coordinates = entry.getValue();
+    for (int routeId : filteredRouteIds) {
+      List<Coordinate2D> coordinates = routes.getCoordinates(routeId);
       Coordinate2D[] simplifiedCoordinatesArray = VisvalingamLineSimplifier
           .simplify(coordinates.toArray(new Coordinate2D[0]), routeSize);
       if (simplifiedCoordinatesArray.length < routeSize) {
-        log.info("Simplified coordinates of wrong length  : {} for {} ", simplifiedCoordinatesArray.length, routeInfo);
+        log.info("Simplified coordinates of wrong length  : {} for {} ", simplifiedCoordinatesArray.length,
+            routes.getRouteInfo(routeId));
 
       }
       simplifiedCoordinatesMatrix[routeIndex++] = simplifiedCoordinatesArray;
@@ -114,17 +189,13 @@ public class Routes {
   }
 
 
-  private Map<RouteInfo, List<Coordinate2D>> filterOutExtremeRoutes(Map<RouteInfo, List<Coordinate2D>> allRoutes,
-      double averageLength, double cutOffDistanceFromAvg) {
-    return allRoutes.keySet().stream().
-        filter(ri -> (ri.getRouteLength() < averageLength + cutOffDistanceFromAvg) && (ri.getRouteLength()
-            > averageLength - cutOffDistanceFromAvg)).
-        collect(Collectors.toMap(ri -> ri, ri -> allRoutes.get(ri)));
+  private int[] filterOutExtremeRoutes(RouteTable allRoutes, double averageLength, double cutOffDistanceFromAvg) {
+    return allRoutes.filterByRouteLength(averageLength - cutOffDistanceFromAvg, averageLength + cutOffDistanceFromAvg);
   }
 
-  private double calculateRouteAverageLength(Map<RouteInfo, List<Coordinate2D>> allRoutes) {
-    DoubleSummaryStatistics doubleSummaryStatistics = allRoutes.keySet().stream().mapToDouble(ri -> ri.getRouteLength())
-        .summaryStatistics();
+  private double calculateRouteAverageLength(RouteTable allRoutes) {
+    DoubleSummaryStatistics doubleSummaryStatistics = IntStream.range(0, allRoutes.size())
+        .mapToDouble(allRoutes::getRouteLength).summaryStatistics();
     double minDist = doubleSummaryStatistics.getMin();
     double maxDist = doubleSummaryStatistics.getMax();
     double avg = doubleSummaryStatistics.getAverage();
@@ -134,8 +205,9 @@ public class Routes {
     return avg;
   }
 
-  private int getMinimumNumberOfCoordinates(Map<RouteInfo, List<Coordinate2D>> allRoutes) {
-    return allRoutes.values().stream().min(Comparator.comparingInt(List::size)).orElseGet(ArrayList::new).size();
+  private int getMinimumNumberOfCoordinates(RouteTable allRoutes) {
+    return IntStream.range(0, allRoutes.size()).map(routeId -> allRoutes.getCoordinates(routeId).size()).min()
+        .orElse(0);
   }
 
   private  Coordinate2D[][] swapMatrix(Coordinate2D[][] coordinatesMatrix) {
@@ -151,4 +223,15 @@ public class Routes {
   }
 
 
+  @RequiredArgsConstructor
+  private static class InputRoutes {
+
+    private final RouteTable allRoutes;
+    private final int[] filteredRouteIds;
+    /**
+     * Minimum number of coordinates of all routes, target size of simplified routes
+     */
+    private final int minCoordinates;
+  }
+
 }
@@ -0,0 +1,112 @@
+package com.ti.routes;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.cos;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+import static java.lang.Math.toRadians;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/**
+ * Simplifies a poly-line arriving point by point using opening window algorithm. Points following the last emitted
+ * vertex (anchor) are collected into a bounded window as long as all of them lie within tolerance from the segment
+ * between the anchor and the newest point. Once a point breaks the tolerance (or the window is full) the last point
+ * still fitting is emitted as a new vertex and becomes the anchor.
+ *
+ * <p>Unlike {@link VisvalingamLineSimplifier} it does not need complete route nor target number of points, memory is
+ * bounded by the window size so it can be used as a stage of the reading pipeline or for live feeds.
+ */
+public class StreamingLineSimplifier implements Consumer<Coordinate2D> {
+
+  public static final int DEFAULT_WINDOW_SIZE = 100;
+
+  private static final double KILOMETERS_PER_DEGREE = toRadians(Coordinate2D.AVERAGE_EARTH_RADIUS);
+
+  private final double tolerance;
+  private final int windowSize;
+  private final Consumer<Coordinate2D> output;
+  private final ArrayDeque<Coordinate2D> window;
+
+  private Coordinate2D anchor;
+
+  /**
+   * @param tolerance maximum perpendicular deviation in kilometers of dropped points from the simplified route
+   * @param output consumer of simplified route vertices
+   */
+  public StreamingLineSimplifier(double tolerance, Consumer<Coordinate2D> output) {
+    this(tolerance, DEFAULT_WINDOW_SIZE, output);
+  }
+
+  /**
+   * @param tolerance maximum perpendicular deviation in kilometers of dropped points from the simplified route
+   * @param windowSize maximum number of points held back before a vertex is emitted
+   * @param output consumer of simplified route vertices
+   */
+  public StreamingLineSimplifier(double tolerance, int windowSize, Consumer<Coordinate2D> output) {
+    checkArgument(tolerance >= 0, "tolerance cannot be negative !");
+    checkArgument(windowSize > 0, "windowSize must be positive !");
+    checkArgument(output != null, "output cannot be null !");
+    this.tolerance = tolerance;
+    this.windowSize = windowSize;
+    this.output = output;
+    this.window = new ArrayDeque<>(windowSize);
+  }
+
+  /**
+   * Adds next point of the route, emitting simplified vertex if the point cannot be covered by current segment
+   */
+  @Override
+  public void accept(Coordinate2D point) {
+    checkArgument(point != null, "point cannot be null !");
+    if (anchor == null) {
+      anchor = point;
+      output.accept(point);
+      return;
+    }
+    if (window.size() < windowSize && isWithinTolerance(point)) {
+      window.addLast(point);
+      return;
+    }
+    anchor = window.pollLast();
+    output.accept(anchor);
+    window.clear();
+    window.addLast(point);
+  }
+
+  /**
+   * Emits last point of the route and resets simplifier so it can be used for next route
+   */
+  public void finish() {
+    if (!window.isEmpty()) {
+      output.accept(window.peekLast());
+    }
+    window.clear();
+    anchor = null;
+  }
+
+  /**
+   * Checks whether all points in the window deviate from the segment anchor - point by no more than tolerance. Points
+   * are projected onto local plane around anchor which is precise enough for distances of simplified segments
+   */
+  private boolean isWithinTolerance(Coordinate2D point) {
+    double lngtScale = cos(toRadians(anchor.getLat())) * KILOMETERS_PER_DEGREE;
+    double segmentX = (point.getLngt() - anchor.getLngt()) * lngtScale;
+    double segmentY = (point.getLat() - anchor.getLat()) * KILOMETERS_PER_DEGREE;
+    double segmentLengthSquared = segmentX * segmentX + segmentY * segmentY;
+    for (Coordinate2D windowPoint : window) {
+      double x = (windowPoint.getLngt() - anchor.getLngt()) * lngtScale;
+      double y = (windowPoint.getLat() - anchor.getLat()) * KILOMETERS_PER_DEGREE;
+      double t = segmentLengthSquared == 0 ? 0 : (x * segmentX + y * segmentY) / segmentLengthSquared;
+      t = max(0, min(1, t));
+      double deviationX = x - t * segmentX;
+      double deviationY = y - t * segmentY;
+      if (sqrt(deviationX * deviationX + deviationY * deviationY) > tolerance) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
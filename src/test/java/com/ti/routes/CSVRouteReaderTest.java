@@ -0,0 +1,90 @@
+package com.ti.routes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CSVRouteReaderTest {
+
+  /**
+   * Track bending after 2nd point, the other points are collinear
+   */
+  private static final List<Coordinate2D> TRACK = Arrays.asList(
+      new Coordinate2D(8.0, 54.0),
+      new Coordinate2D(8.1, 54.0),
+      new Coordinate2D(8.2, 54.0),
+      new Coordinate2D(8.3, 54.1),
+      new Coordinate2D(8.4, 54.2));
+  private static final List<Coordinate2D> SIMPLIFIED_TRACK = Arrays.asList(TRACK.get(0), TRACK.get(2), TRACK.get(4));
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File inputCsvFile;
+
+  @Before
+  public void writeInputCsv() throws IOException {
+    inputCsvFile = temporaryFolder.newFile("routes.csv");
+    // the same track sailed in both directions, routes from DEBRV are reversed while reading
+    Files.write(inputCsvFile.toPath(), Arrays.asList(
+        "vessel-a,1,2,DEHAM,DEBRV,0,0,\"" + points(TRACK) + "\"",
+        "vessel-b,2,3,DEBRV,DEHAM,0,0,\"" + points(Lists.reverse(TRACK)) + "\""), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testRoutesAreReadInOneDirection() throws IOException {
+    RouteTable routes = new CSVRouteReader().readRoutes(inputCsvFile);
+
+    assertEquals(2, routes.size());
+    assertEquals(new RouteInfo("vessel-a", "1", "2", 0), routes.getRouteInfo(0));
+    assertEquals(new RouteInfo("vessel-b", "2", "3", 0), routes.getRouteInfo(1));
+    for (int routeId = 0; routeId < routes.size(); routeId++) {
+      assertEquals(TRACK, routes.getCoordinates(routeId));
+      assertEquals(Coordinate2D.calculateRouteLength(TRACK), routes.getRouteLength(routeId), 1e-9);
+    }
+  }
+
+  @Test
+  public void testRoutesAreSimplifiedWhileReading() throws IOException {
+    RouteTable routes = new CSVRouteReader(0.5).readRoutes(inputCsvFile);
+
+    assertEquals(2, routes.size());
+    for (int routeId = 0; routeId < routes.size(); routeId++) {
+      assertEquals(SIMPLIFIED_TRACK, routes.getCoordinates(routeId));
+      // length is calculated from simplified coordinates
+      assertEquals(Coordinate2D.calculateRouteLength(SIMPLIFIED_TRACK), routes.getRouteLength(routeId), 1e-9);
+      assertTrue(routes.getRouteLength(routeId) < Coordinate2D.calculateRouteLength(TRACK));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeToleranceIsRejected() {
+    new CSVRouteReader(-1);
+  }
+
+  /**
+   * Points in the format of the input data - longitude, latitude, timestamp and speed
+   */
+  private static String points(List<Coordinate2D> coordinates) {
+    StringBuilder points = new StringBuilder("[");
+    for (int i = 0; i < coordinates.size(); i++) {
+      if (i > 0) {
+        points.append(", ");
+      }
+      points.append('[').append(coordinates.get(i).getLngt()).append(", ").append(coordinates.get(i).getLat())
+          .append(", ").append(1500000000 + i).append(", 10.5]");
+    }
+    return points.append(']').toString();
+  }
+}
@@ -0,0 +1,80 @@
+package com.ti.routes;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class Coordinate2DTest {
+
+  @Test
+  public void testHintedNearestPointSearchEqualsFullScan() {
+    Random random = new Random(42);
+    List<Coordinate2D> centers = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      centers.add(new Coordinate2D(8 + random.nextDouble() * 2, 53.5 + random.nextDouble()));
+    }
+    // duplicate centers are equidistant from every point, the lowest index has to win
+    for (int i = 0; i < 15; i++) {
+      centers.add(random.nextInt(centers.size()), new Coordinate2D(centers.get(random.nextInt(centers.size()))));
+    }
+
+    List<Coordinate2D> points = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      points.add(new Coordinate2D(7.5 + random.nextDouble() * 3, 53 + random.nextDouble() * 2));
+    }
+    // points at the centers and off the corridor in latitude only, where pruning skips the most
+    points.addAll(centers);
+    points.add(new Coordinate2D(9.0, 50.0));
+    points.add(new Coordinate2D(9.0, 58.0));
+
+    for (Coordinate2D point : points) {
+      int expected = fullScan(point, centers);
+      assertEquals(expected, point.getNearestPointIndex(centers));
+      for (int hint = 0; hint < centers.size(); hint++) {
+        assertEquals("hint " + hint + " for " + point, expected, point.getNearestPointIndex(centers, hint));
+      }
+    }
+  }
+
+  @Test
+  public void testEquidistantCentersResolveToLowestIndex() {
+    Coordinate2D point = new Coordinate2D(9.0, 54.0);
+    Coordinate2D far = new Coordinate2D(9.5, 54.5);
+    Coordinate2D near = new Coordinate2D(9.1, 54.1);
+    List<Coordinate2D> centers = Arrays.asList(far, near, far, new Coordinate2D(near), near);
+    for (int hint = 0; hint < centers.size(); hint++) {
+      assertEquals(1, point.getNearestPointIndex(centers, hint));
+    }
+  }
+
+  @Test
+  public void testNearestPointOfNoCenters() {
+    assertEquals(0, new Coordinate2D(9.0, 54.0).getNearestPointIndex(Collections.emptyList(), 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testHintOutOfRangeIsRejected() {
+    new Coordinate2D(9.0, 54.0).getNearestPointIndex(Collections.singletonList(new Coordinate2D(9.0, 54.0)), 1);
+  }
+
+  /**
+   * Index of the nearest center, the first one of equidistant centers
+   */
+  private static int fullScan(Coordinate2D point, List<Coordinate2D> centers) {
+    int nearest = 0;
+    double closest = Double.MAX_VALUE;
+    for (int i = 0; i < centers.size(); i++) {
+      double distance = Coordinate2D.calculateRouteLength(Arrays.asList(point, centers.get(i)));
+      if (distance < closest) {
+        closest = distance;
+        nearest = i;
+      }
+    }
+    return nearest;
+  }
+}
@@ -0,0 +1,116 @@
+package com.ti.routes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.val;
+import org.junit.Test;
+
+public class DensityGridRouteAveragerTest {
+
+  private static final double KILOMETERS_PER_DEGREE = Math.toRadians(Coordinate2D.AVERAGE_EARTH_RADIUS);
+  private static final Coordinate2D BEND = new Coordinate2D(9.0, 54.0);
+
+  @Test
+  public void testRidgeFollowsBentCorridorAcrossGap() {
+    val routes = bentCorridorWithGap();
+    // straight line from averaged origin to destination would pass this far from the bend
+    double shortcutDistance = distanceToRoute(BEND,
+        Arrays.asList(new Coordinate2D(8.0, 54.0), new Coordinate2D(9.0, 54.6)));
+    for (int resolution : new int[]{DensityGridRouteAverager.MIN_RESOLUTION, 256, 300, 1024}) {
+      val ridge = DensityGridRouteAverager.averageRoute(routes, resolution, false);
+      double maxStep = 2 * Math.sqrt(2) * cellSize(routes, resolution);
+      for (int i = 1; i < ridge.size(); i++) {
+        double step = Coordinate2D.calculateRouteLength(ridge.subList(i - 1, i + 1));
+        assertTrue("step of " + step + " km at resolution " + resolution, step <= maxStep);
+      }
+      double bendDistance = distanceToRoute(BEND, ridge);
+      assertTrue("bend missed by " + bendDistance + " km at resolution " + resolution,
+          bendDistance < shortcutDistance / 10);
+      // corridor is about 65 km east and 67 km north, crossing the gap adds about 7 km
+      double length = Coordinate2D.calculateRouteLength(ridge);
+      assertTrue("length of " + length + " km at resolution " + resolution, length > 135 && length < 150);
+    }
+  }
+
+  @Test
+  public void testRidgeOfStraightCorridorConnectsAveragedEndPoints() {
+    List<List<Coordinate2D>> routes = Arrays.asList(
+        Arrays.asList(new Coordinate2D(8.0, 54.00), new Coordinate2D(9.0, 54.00)),
+        Arrays.asList(new Coordinate2D(8.0, 54.02), new Coordinate2D(9.0, 54.02)));
+    val ridge = DensityGridRouteAverager.averageRoute(routes, 200, true);
+    assertEquals(8.0, ridge.get(0).getLngt(), 1e-9);
+    assertEquals(54.01, ridge.get(0).getLat(), 1e-9);
+    assertEquals(9.0, ridge.get(ridge.size() - 1).getLngt(), 1e-9);
+    assertEquals(54.01, ridge.get(ridge.size() - 1).getLat(), 1e-9);
+    for (Coordinate2D coordinate : ridge) {
+      assertTrue(coordinate.getLat() >= 54.0 && coordinate.getLat() <= 54.02);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooCoarseResolutionIsRejected() {
+    List<List<Coordinate2D>> routes = Arrays.asList(
+        Arrays.asList(new Coordinate2D(8.0, 54.0), new Coordinate2D(9.0, 54.0)));
+    DensityGridRouteAverager.averageRoute(routes, DensityGridRouteAverager.MIN_RESOLUTION - 1, false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooFineResolutionIsRejected() {
+    // square bounding box, grid of MAX_RESOLUTION + 1 squared cells would overflow int buffer sizes
+    List<List<Coordinate2D>> routes = Arrays.asList(
+        Arrays.asList(new Coordinate2D(8.0, 0.0), new Coordinate2D(9.0, 1.0)));
+    DensityGridRouteAverager.averageRoute(routes, DensityGridRouteAverager.MAX_RESOLUTION + 1, false);
+  }
+
+  /**
+   * Routes leaving two berths 22 km apart, joining into single channel which bends by 90 degrees. Averaged origin lies
+   * in the empty gap between the berths, where greedy walk along the ridge used to dead-end.
+   */
+  private static List<List<Coordinate2D>> bentCorridorWithGap() {
+    List<List<Coordinate2D>> routes = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      double berthLat = i % 2 == 0 ? 53.9 : 54.1;
+      double offset = (i / 2 - 2) * 0.002;
+      routes.add(Arrays.asList(
+          new Coordinate2D(8.0, berthLat + offset),
+          new Coordinate2D(8.2, 54.0 + offset),
+          new Coordinate2D(BEND.getLngt() - offset, BEND.getLat() + offset),
+          new Coordinate2D(9.0 - offset, 54.6)));
+    }
+    return routes;
+  }
+
+  /**
+   * Distance in kilometers from point to the nearest vertex of densely sampled route
+   */
+  private static double distanceToRoute(Coordinate2D point, List<Coordinate2D> route) {
+    double distance = Double.POSITIVE_INFINITY;
+    for (int i = 1; i < route.size(); i++) {
+      Coordinate2D start = route.get(i - 1);
+      Coordinate2D end = route.get(i);
+      for (int step = 0; step <= 100; step++) {
+        Coordinate2D sample = new Coordinate2D(start.getLngt() + (end.getLngt() - start.getLngt()) * step / 100,
+            start.getLat() + (end.getLat() - start.getLat()) * step / 100);
+        distance = Math.min(distance, Coordinate2D.calculateRouteLength(Arrays.asList(point, sample)));
+      }
+    }
+    return distance;
+  }
+
+  /**
+   * Size of square grid cell in kilometers, the same as the averager derives from bounding box of the routes
+   */
+  private static double cellSize(List<List<Coordinate2D>> routes, int resolution) {
+    val coordinates = routes.stream().flatMap(List::stream).toArray(Coordinate2D[]::new);
+    double minX = Arrays.stream(coordinates).mapToDouble(Coordinate2D::getLngt).min().getAsDouble();
+    double maxX = Arrays.stream(coordinates).mapToDouble(Coordinate2D::getLngt).max().getAsDouble();
+    double minY = Arrays.stream(coordinates).mapToDouble(Coordinate2D::getLat).min().getAsDouble();
+    double maxY = Arrays.stream(coordinates).mapToDouble(Coordinate2D::getLat).max().getAsDouble();
+    double lngtScale = Math.cos(Math.toRadians((minY + maxY) / 2));
+    return Math.max((maxX - minX) * lngtScale, maxY - minY) / resolution * KILOMETERS_PER_DEGREE;
+  }
+}
@@ -0,0 +1,426 @@
+package com.ti.routes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Reads written files back with minimal FlatGeobuf reader independent of the writer
+ */
+public class FlatGeobufResultWriterTest {
+
+  private static final byte[] MAGIC_BYTES = {0x66, 0x67, 0x62, 0x03, 0x66, 0x67, 0x62, 0x00};
+  private static final int NODE_BYTES = 40;
+  private static final List<String> COLUMN_NAMES = Arrays
+      .asList("Description", "vesselId", "from_seq", "to_seq", "routeLength");
+  private static final List<Integer> COLUMN_TYPES = Arrays.asList(11, 11, 11, 11, 10);
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testIndexPointsToFeaturesWithTheirBounds() throws IOException {
+    RouteTable routes = createRoutes(40);
+    int[] routeIds = routes.filterByRouteLength(2, Double.MAX_VALUE);
+    List<Coordinate2D> avgRoute = route(8.0, 53.5, 0.02);
+    ParsedFile parsed = writeAndRead(new FlatGeobufResultWriter(4), avgRoute, routes, routeIds);
+
+    assertEquals(routeIds.length + 1, parsed.featuresCount);
+    assertEquals(4, parsed.indexNodeSize);
+    assertFeatures(parsed, avgRoute, routes, routeIds);
+
+    // 38 routes and avg route in leaves, 10 + 3 + 1 inner nodes
+    assertEquals(53, parsed.nodes.size());
+    assertIndex(parsed);
+  }
+
+  @Test
+  public void testSingleFeatureHasTwoNodeIndex() throws IOException {
+    List<Coordinate2D> avgRoute = route(8.0, 53.5, 0.02);
+    ParsedFile parsed = writeAndRead(new FlatGeobufResultWriter(), avgRoute, new RouteTable(), new int[0]);
+
+    assertEquals(1, parsed.featuresCount);
+    assertEquals(FlatGeobufResultWriter.DEFAULT_INDEX_NODE_SIZE, parsed.indexNodeSize);
+    assertFeatures(parsed, avgRoute, new RouteTable(), new int[0]);
+
+    assertEquals(2, parsed.nodes.size());
+    Node root = parsed.nodes.get(0);
+    Node leaf = parsed.nodes.get(1);
+    assertEquals(1, root.offset);
+    assertEquals(0, leaf.offset);
+    assertArrayEquals(leaf.bounds, root.bounds, 0);
+    assertArrayEquals(parsed.envelope, root.bounds, 0);
+    assertIndex(parsed);
+  }
+
+  @Test
+  public void testFeaturesAreWrittenInInputOrderWithoutIndex() throws IOException {
+    RouteTable routes = createRoutes(10);
+    int[] routeIds = {7, 2, 5};
+    List<Coordinate2D> avgRoute = route(8.0, 53.5, 0.02);
+    ParsedFile parsed = writeAndRead(new FlatGeobufResultWriter(0), avgRoute, routes, routeIds);
+
+    assertEquals(4, parsed.featuresCount);
+    assertEquals(0, parsed.indexNodeSize);
+    assertTrue(parsed.nodes.isEmpty());
+    assertFeatures(parsed, avgRoute, routes, routeIds);
+
+    List<Feature> features = new ArrayList<>(parsed.features.values());
+    assertEquals("Avg route", features.get(0).properties.get("Description"));
+    for (int i = 0; i < routeIds.length; i++) {
+      assertEquals(routes.getVesselId(routeIds[i]), features.get(i + 1).properties.get("vesselId"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNodeSizeOfOneIsRejected() {
+    new FlatGeobufResultWriter(1);
+  }
+
+  private ParsedFile writeAndRead(FlatGeobufResultWriter writer, List<Coordinate2D> avgRoute, RouteTable routes,
+      int[] routeIds) throws IOException {
+    File outputFile = temporaryFolder.newFile("routes.fgb");
+    writer.writeResult(avgRoute, routes, routeIds, outputFile);
+    return new ParsedFile(Files.readAllBytes(outputFile.toPath()));
+  }
+
+  /**
+   * Checks header envelope and that every written route is present once with its coordinates and properties
+   */
+  private static void assertFeatures(ParsedFile parsed, List<Coordinate2D> avgRoute, RouteTable routes,
+      int[] routeIds) {
+    assertEquals(parsed.featuresCount, parsed.features.size());
+    assertEquals("routes", parsed.name);
+    assertEquals(2, parsed.geometryType);
+    assertEquals(COLUMN_NAMES, parsed.columnNames);
+    assertEquals(COLUMN_TYPES, parsed.columnTypes);
+    assertEquals("EPSG", parsed.crsOrg);
+    assertEquals(4326, parsed.crsCode);
+
+    double[] envelope = bounds(avgRoute);
+    Map<String, Integer> routeIdsByVesselId = new HashMap<>();
+    for (int routeId : routeIds) {
+      routeIdsByVesselId.put(routes.getVesselId(routeId), routeId);
+      double[] routeBounds = bounds(routes.getCoordinates(routeId));
+      envelope = new double[]{Math.min(envelope[0], routeBounds[0]), Math.min(envelope[1], routeBounds[1]),
+          Math.max(envelope[2], routeBounds[2]), Math.max(envelope[3], routeBounds[3])};
+    }
+    assertArrayEquals(envelope, parsed.envelope, 0);
+
+    for (Feature feature : parsed.features.values()) {
+      if ("Avg route".equals(feature.properties.get("Description"))) {
+        assertEquals(avgRoute, feature.coordinates);
+        assertEquals(Coordinate2D.calculateRouteLength(avgRoute), (Double) feature.properties.get("routeLength"), 0);
+        continue;
+      }
+      int routeId = routeIdsByVesselId.remove(feature.properties.get("vesselId"));
+      assertEquals(routes.getCoordinates(routeId), feature.coordinates);
+      assertEquals(routes.getFromSeq(routeId), feature.properties.get("from_seq"));
+      assertEquals(routes.getToSeq(routeId), feature.properties.get("to_seq"));
+      assertEquals(routes.getRouteLength(routeId), (Double) feature.properties.get("routeLength"), 0);
+    }
+    assertTrue(routeIdsByVesselId.isEmpty());
+  }
+
+  /**
+   * Walks the index from the root, checks inner nodes enclose their children and leaves point to features with the
+   * same bounds, each feature exactly once
+   */
+  private static void assertIndex(ParsedFile parsed) {
+    int nodeSize = parsed.indexNodeSize;
+    List<Integer> levelNumNodes = new ArrayList<>();
+    int n = (int) parsed.featuresCount;
+    levelNumNodes.add(n);
+    do {
+      n = (n + nodeSize - 1) / nodeSize;
+      levelNumNodes.add(0, n);
+    } while (n != 1);
+    int[] levelEnds = new int[levelNumNodes.size()];
+    int end = 0;
+    for (int level = 0; level < levelEnds.length; level++) {
+      end += levelNumNodes.get(level);
+      levelEnds[level] = end;
+    }
+    assertEquals(end, parsed.nodes.size());
+    assertArrayEquals(parsed.envelope, parsed.nodes.get(0).bounds, 0);
+
+    Set<Long> leafOffsets = new HashSet<>();
+    assertNode(parsed, 0, 0, levelEnds, leafOffsets);
+    assertEquals(parsed.features.keySet(), leafOffsets);
+  }
+
+  private static void assertNode(ParsedFile parsed, int nodeIndex, int level, int[] levelEnds, Set<Long> leafOffsets) {
+    Node node = parsed.nodes.get(nodeIndex);
+    if (level == levelEnds.length - 1) {
+      Feature feature = parsed.features.get(node.offset);
+      assertTrue("leaf " + nodeIndex + " does not point to feature", feature != null);
+      assertArrayEquals(bounds(feature.coordinates), node.bounds, 0);
+      assertTrue(leafOffsets.add(node.offset));
+      return;
+    }
+    int firstChild = (int) node.offset;
+    int lastChild = Math.min(firstChild + parsed.indexNodeSize, levelEnds[level + 1]);
+    assertTrue(firstChild >= levelEnds[level] && firstChild < lastChild);
+    double[] childrenBounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+        Double.NEGATIVE_INFINITY};
+    for (int child = firstChild; child < lastChild; child++) {
+      double[] bounds = parsed.nodes.get(child).bounds;
+      childrenBounds = new double[]{Math.min(childrenBounds[0], bounds[0]), Math.min(childrenBounds[1], bounds[1]),
+          Math.max(childrenBounds[2], bounds[2]), Math.max(childrenBounds[3], bounds[3])};
+      assertNode(parsed, child, level + 1, levelEnds, leafOffsets);
+    }
+    assertArrayEquals(childrenBounds, node.bounds, 0);
+  }
+
+  /**
+   * Routes spread over a grid, so the index has something to sort
+   */
+  private static RouteTable createRoutes(int count) {
+    RouteTable routes = new RouteTable();
+    for (int i = 0; i < count; i++) {
+      routes.addRoute("vessel-" + i, String.valueOf(i), String.valueOf(i + 1), i * 1.5,
+          route(8.0 + (i % 7) * 0.3, 53.0 + (i / 7) * 0.2, 0.01 * (i + 1)));
+    }
+    return routes;
+  }
+
+  private static List<Coordinate2D> route(double lngt, double lat, double step) {
+    List<Coordinate2D> route = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      route.add(new Coordinate2D(lngt + i * step, lat + (i % 2) * step));
+    }
+    return route;
+  }
+
+  private static double[] bounds(List<Coordinate2D> coordinates) {
+    double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+        Double.NEGATIVE_INFINITY};
+    for (Coordinate2D coordinate : coordinates) {
+      bounds[0] = Math.min(bounds[0], coordinate.getLngt());
+      bounds[1] = Math.min(bounds[1], coordinate.getLat());
+      bounds[2] = Math.max(bounds[2], coordinate.getLngt());
+      bounds[3] = Math.max(bounds[3], coordinate.getLat());
+    }
+    return bounds;
+  }
+
+  private static class ParsedFile {
+
+    private final String name;
+    private final double[] envelope;
+    private final int geometryType;
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<Integer> columnTypes = new ArrayList<>();
+    private final long featuresCount;
+    private final int indexNodeSize;
+    private final String crsOrg;
+    private final int crsCode;
+    private final List<Node> nodes = new ArrayList<>();
+    /**
+     * Features by their byte offset in features section, in file order
+     */
+    private final Map<Long, Feature> features = new LinkedHashMap<>();
+
+    private ParsedFile(byte[] bytes) {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+      assertArrayEquals(MAGIC_BYTES, Arrays.copyOf(bytes, MAGIC_BYTES.length));
+
+      FlatBufferTable header = FlatBufferTable.sizePrefixedRoot(buffer, MAGIC_BYTES.length);
+      name = header.getString(0);
+      envelope = header.getDoubles(1);
+      geometryType = header.getByte(2, 0);
+      for (FlatBufferTable column : header.getTables(7)) {
+        columnNames.add(column.getString(0));
+        columnTypes.add(column.getByte(1, 0));
+      }
+      featuresCount = header.getLong(8, 0);
+      indexNodeSize = header.getShort(9, 16);
+      FlatBufferTable crs = header.getTable(10);
+      crsOrg = crs.getString(0);
+      crsCode = crs.getInt(1, 0);
+
+      int position = MAGIC_BYTES.length + 4 + buffer.getInt(MAGIC_BYTES.length);
+      if (indexNodeSize > 0) {
+        long n = featuresCount;
+        long numNodes = n;
+        do {
+          n = (n + indexNodeSize - 1) / indexNodeSize;
+          numNodes += n;
+        } while (n != 1);
+        for (int i = 0; i < numNodes; i++) {
+          nodes.add(new Node(buffer, position));
+          position += NODE_BYTES;
+        }
+      }
+
+      int featuresStart = position;
+      while (position < bytes.length) {
+        features.put((long) (position - featuresStart), new Feature(FlatBufferTable.sizePrefixedRoot(buffer, position),
+            columnNames, columnTypes));
+        position += 4 + buffer.getInt(position);
+      }
+      assertEquals(bytes.length, position);
+    }
+  }
+
+  private static class Node {
+
+    private final double[] bounds = new double[4];
+    private final long offset;
+
+    private Node(ByteBuffer buffer, int position) {
+      for (int i = 0; i < 4; i++) {
+        bounds[i] = buffer.getDouble(position + 8 * i);
+      }
+      offset = buffer.getLong(position + 32);
+    }
+  }
+
+  private static class Feature {
+
+    private final List<Coordinate2D> coordinates = new ArrayList<>();
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private Feature(FlatBufferTable feature, List<String> columnNames, List<Integer> columnTypes) {
+      double[] xy = feature.getTable(0).getDoubles(1);
+      for (int i = 0; i < xy.length; i += 2) {
+        coordinates.add(new Coordinate2D(xy[i], xy[i + 1]));
+      }
+      ByteBuffer bytes = ByteBuffer.wrap(feature.getBytes(1)).order(ByteOrder.LITTLE_ENDIAN);
+      while (bytes.hasRemaining()) {
+        int column = bytes.getShort() & 0xFFFF;
+        if (columnTypes.get(column) == 11) {
+          byte[] utf8 = new byte[bytes.getInt()];
+          bytes.get(utf8);
+          properties.put(columnNames.get(column), new String(utf8, StandardCharsets.UTF_8));
+        } else {
+          properties.put(columnNames.get(column), bytes.getDouble());
+        }
+      }
+    }
+  }
+
+  /**
+   * Flatbuffer table reader checking alignment of fields relative to the size prefix
+   */
+  private static class FlatBufferTable {
+
+    private final ByteBuffer buffer;
+    private final int base;
+    private final int position;
+    private final int vtable;
+
+    private FlatBufferTable(ByteBuffer buffer, int base, int position) {
+      assertEquals("table alignment", 0, (position - base) % 4);
+      this.buffer = buffer;
+      this.base = base;
+      this.position = position;
+      this.vtable = position - buffer.getInt(position);
+    }
+
+    private static FlatBufferTable sizePrefixedRoot(ByteBuffer buffer, int base) {
+      int root = base + 4;
+      return new FlatBufferTable(buffer, base, root + buffer.getInt(root));
+    }
+
+    private int fieldPosition(int slot, int size) {
+      int vtableSize = buffer.getShort(vtable);
+      if (4 + 2 * slot >= vtableSize) {
+        return 0;
+      }
+      int offset = buffer.getShort(vtable + 4 + 2 * slot);
+      if (offset == 0) {
+        return 0;
+      }
+      assertEquals("field alignment", 0, (position + offset - base) % size);
+      return position + offset;
+    }
+
+    private int getByte(int slot, int defaultValue) {
+      int field = fieldPosition(slot, 1);
+      return field == 0 ? defaultValue : buffer.get(field) & 0xFF;
+    }
+
+    private int getShort(int slot, int defaultValue) {
+      int field = fieldPosition(slot, 2);
+      return field == 0 ? defaultValue : buffer.getShort(field) & 0xFFFF;
+    }
+
+    private int getInt(int slot, int defaultValue) {
+      int field = fieldPosition(slot, 4);
+      return field == 0 ? defaultValue : buffer.getInt(field);
+    }
+
+    private long getLong(int slot, long defaultValue) {
+      int field = fieldPosition(slot, 8);
+      return field == 0 ? defaultValue : buffer.getLong(field);
+    }
+
+    private int getReferenced(int slot) {
+      int field = fieldPosition(slot, 4);
+      assertTrue("missing field " + slot, field != 0);
+      return field + buffer.getInt(field);
+    }
+
+    private FlatBufferTable getTable(int slot) {
+      return new FlatBufferTable(buffer, base, getReferenced(slot));
+    }
+
+    private FlatBufferTable[] getTables(int slot) {
+      int vector = getReferenced(slot);
+      FlatBufferTable[] tables = new FlatBufferTable[buffer.getInt(vector)];
+      for (int i = 0; i < tables.length; i++) {
+        int element = vector + 4 + 4 * i;
+        tables[i] = new FlatBufferTable(buffer, base, element + buffer.getInt(element));
+      }
+      return tables;
+    }
+
+    private String getString(int slot) {
+      int string = getReferenced(slot);
+      byte[] bytes = getBytesAt(string);
+      assertEquals("missing string terminator", 0, buffer.get(string + 4 + bytes.length));
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] getBytes(int slot) {
+      return getBytesAt(getReferenced(slot));
+    }
+
+    private byte[] getBytesAt(int vector) {
+      byte[] bytes = new byte[buffer.getInt(vector)];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = buffer.get(vector + 4 + i);
+      }
+      return bytes;
+    }
+
+    private double[] getDoubles(int slot) {
+      int vector = getReferenced(slot);
+      double[] doubles = new double[buffer.getInt(vector)];
+      assertEquals("vector alignment", 0, (vector + 4 - base) % 8);
+      for (int i = 0; i < doubles.length; i++) {
+        doubles[i] = buffer.getDouble(vector + 4 + 8 * i);
+      }
+      return doubles;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.ti.routes;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GeoJsonResultWriterTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testRoutesAreWrittenWithTheirInfo() throws IOException {
+    RouteTable routes = new RouteTable();
+    routes.addRoute("vessel-a", "1", "2", 210.5,
+        Arrays.asList(new Coordinate2D(8.5, 53.5), new Coordinate2D(9.9, 53.5)));
+    routes.addRoute("vessel-b", "2", "3", 215.0,
+        Arrays.asList(new Coordinate2D(8.6, 53.6), new Coordinate2D(9.8, 53.4)));
+    routes.addRoute("vessel-c", "3", "4", 230.0,
+        Arrays.asList(new Coordinate2D(8.7, 53.7), new Coordinate2D(9.7, 53.3)));
+    List<Coordinate2D> avgRoute = Arrays.asList(new Coordinate2D(8.55, 53.55), new Coordinate2D(9.85, 53.45));
+    File outputFile = temporaryFolder.newFile("routes.geojson");
+
+    new GeoJsonResultWriter().writeResult(avgRoute, routes, new int[]{2, 0}, outputFile);
+
+    JsonArray features;
+    try (FileReader reader = new FileReader(outputFile)) {
+      features = new JsonParser().parse(reader).getAsJsonObject().getAsJsonArray("features");
+    }
+    assertEquals(3, features.size());
+    assertEquals("Avg route", properties(features, 0).get("Description").getAsString());
+    assertCoordinates(avgRoute, features, 0);
+
+    int featureIndex = 1;
+    for (int routeId : new int[]{2, 0}) {
+      JsonObject properties = properties(features, featureIndex);
+      assertEquals(routes.getVesselId(routeId), properties.get("vesselId").getAsString());
+      assertEquals(routes.getFromSeq(routeId), properties.get("from_seq").getAsString());
+      assertEquals(routes.getToSeq(routeId), properties.get("to_seq").getAsString());
+      assertEquals(routes.getRouteLength(routeId), properties.get("routeLength").getAsDouble(), 0);
+      assertCoordinates(routes.getCoordinates(routeId), features, featureIndex);
+      featureIndex++;
+    }
+  }
+
+  @Test
+  public void testOnlyResultIsWrittenWithoutRoutes() throws IOException {
+    List<Coordinate2D> avgRoute = Arrays.asList(new Coordinate2D(8.55, 53.55), new Coordinate2D(9.85, 53.45));
+    File outputFile = temporaryFolder.newFile("route.geojson");
+
+    new GeoJsonResultWriter().writeResult(avgRoute, outputFile);
+
+    assertEquals(avgRoute.size(), RoutesTest.readAvgRoute(outputFile).size());
+    try (FileReader reader = new FileReader(outputFile)) {
+      assertEquals(1, new JsonParser().parse(reader).getAsJsonObject().getAsJsonArray("features").size());
+    }
+  }
+
+  private static JsonObject properties(JsonArray features, int index) {
+    return features.get(index).getAsJsonObject().getAsJsonObject("properties");
+  }
+
+  private static void assertCoordinates(List<Coordinate2D> expected, JsonArray features, int index) {
+    JsonArray coordinates = features.get(index).getAsJsonObject().getAsJsonObject("geometry")
+        .getAsJsonArray("coordinates");
+    assertEquals(expected.size(), coordinates.size());
+    for (int i = 0; i < expected.size(); i++) {
+      JsonArray position = coordinates.get(i).getAsJsonArray();
+      assertEquals(expected.get(i).getLngt(), position.get(0).getAsDouble(), 0);
+      assertEquals(expected.get(i).getLat(), position.get(1).getAsDouble(), 0);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.ti.routes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class HilbertCurveTest {
+
+  private static final int MAX = HilbertCurve.MAX_COORDINATE;
+
+  /**
+   * Hilbert indexes of 4x4 cells in the corner of the curve, rows from y = 3 down to y = 0
+   */
+  private static final long[][] ORDER_2_INDEXES = {
+      {5, 6, 9, 10},
+      {4, 7, 8, 11},
+      {3, 2, 13, 12},
+      {0, 1, 14, 15}};
+
+  @Test
+  public void testIndexVisitsQuadrantsInHilbertOrder() {
+    assertEquals(0, HilbertCurve.index(0, 0));
+    assertEquals(1, HilbertCurve.index(0, MAX) >>> 30);
+    assertEquals(2, HilbertCurve.index(MAX, MAX) >>> 30);
+    assertEquals(3, HilbertCurve.index(MAX, 0) >>> 30);
+    // curve ends in the last cell
+    assertEquals(0xFFFFFFFFL, HilbertCurve.index(MAX, 0));
+  }
+
+  @Test
+  public void testIndexOfSmallOrderCells() {
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 4; x++) {
+        assertEquals("cell " + x + "," + y, ORDER_2_INDEXES[3 - y][x], HilbertCurve.index(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void testSubsequentIndexesAreNeighbourCells() {
+    // 16x16 corner of the curve is curve of order 4 - indexes 0..255, each cell next to the previous one
+    int[][] cells = new int[256][];
+    for (int y = 0; y < 16; y++) {
+      for (int x = 0; x < 16; x++) {
+        long index = HilbertCurve.index(x, y);
+        assertTrue(index < 256 && cells[(int) index] == null);
+        cells[(int) index] = new int[]{x, y};
+      }
+    }
+    for (int i = 1; i < cells.length; i++) {
+      assertEquals(1, Math.abs(cells[i][0] - cells[i - 1][0]) + Math.abs(cells[i][1] - cells[i - 1][1]));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIndexOutOfRangeIsRejected() {
+    HilbertCurve.index(MAX + 1, 0);
+  }
+
+  @Test
+  public void testIndexOfZeroSizeBoundingBox() {
+    assertEquals(HilbertCurve.index(0, MAX / 2), HilbertCurve.index(8.0, 54.5, 8.0, 54.0, 0, 1.0));
+    assertEquals(HilbertCurve.index(MAX / 2, 0), HilbertCurve.index(8.5, 54.0, 8.0, 54.0, 1.0, 0));
+    assertEquals(0, HilbertCurve.index(8.0, 54.0, 8.0, 54.0, 0, 0));
+  }
+
+  @Test
+  public void testSortIsPermutation() {
+    Random random = new Random(42);
+    List<Coordinate2D> coordinates = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      coordinates.add(new Coordinate2D(8 + random.nextDouble() * 2, 53.5 + random.nextDouble()));
+    }
+    // duplicates, equal and identical
+    coordinates.add(new Coordinate2D(coordinates.get(0)));
+    coordinates.add(coordinates.get(1));
+    assertPermutation(coordinates, HilbertCurve.sort(coordinates));
+  }
+
+  @Test
+  public void testSortFollowsCurve() {
+    List<Coordinate2D> coordinates = new ArrayList<>();
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 4; x++) {
+        coordinates.add(new Coordinate2D(8.0 + x, 54.0 + y));
+      }
+    }
+    Collections.shuffle(coordinates, new Random(42));
+    List<Coordinate2D> sorted = HilbertCurve.sort(coordinates);
+    for (int i = 0; i < sorted.size(); i++) {
+      int x = (int) (sorted.get(i).getLngt() - 8.0);
+      int y = (int) (sorted.get(i).getLat() - 54.0);
+      assertEquals(i, ORDER_2_INDEXES[3 - y][x]);
+    }
+  }
+
+  @Test
+  public void testSortOfEmptyAndSinglePointList() {
+    assertEquals(Collections.emptyList(), HilbertCurve.sort(Collections.emptyList()));
+    Coordinate2D coordinate = new Coordinate2D(8.0, 54.0);
+    assertEquals(Collections.singletonList(coordinate), HilbertCurve.sort(Collections.singletonList(coordinate)));
+  }
+
+  @Test
+  public void testSortOfZeroWidthAndZeroHeightBoundingBox() {
+    List<Coordinate2D> meridian = new ArrayList<>();
+    List<Coordinate2D> parallel = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      meridian.add(new Coordinate2D(8.0, 54.0 + ((i * 37) % 100) * 0.01));
+      parallel.add(new Coordinate2D(8.0 + ((i * 37) % 100) * 0.01, 54.0));
+    }
+    assertPermutation(meridian, HilbertCurve.sort(meridian));
+    assertPermutation(parallel, HilbertCurve.sort(parallel));
+    List<Coordinate2D> samePoint = Arrays.asList(new Coordinate2D(8.0, 54.0), new Coordinate2D(8.0, 54.0));
+    assertPermutation(samePoint, HilbertCurve.sort(samePoint));
+  }
+
+  private static void assertPermutation(List<Coordinate2D> expected, List<Coordinate2D> actual) {
+    assertEquals(expected.size(), actual.size());
+    Map<Coordinate2D, Integer> counts = new IdentityHashMap<>();
+    for (Coordinate2D coordinate : expected) {
+      counts.merge(coordinate, 1, Integer::sum);
+    }
+    for (Coordinate2D coordinate : actual) {
+      counts.merge(coordinate, -1, Integer::sum);
+    }
+    for (int count : counts.values()) {
+      assertEquals(0, count);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package com.ti.routes;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * Benchmark of k-means clustering of average route calculation, not run as part of the build. Sample routes from
+ * {@code data/DEBRV_DEHAM_historical_routes.geojson} are copied with random jitter into CSV in the input format, read
+ * and prepared the same way as in {@link Routes}, then clustered in three stages so the value of each optimisation is
+ * visible on its own:
+ * <ul>
+ * <li>full scan - every point compared with every center, original order of the coordinate cloud</li>
+ * <li>pruning - nearest center search seeded with previous point and pruned by latitude, original order</li>
+ * <li>Hilbert - pruning with the coordinate cloud ordered along Hilbert curve (sorting included)</li>
+ * </ul>
+ *
+ * <p>Run after {@code mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt} with
+ * {@code java -cp target/test-classes:target/classes:$(cat cp.txt) com.ti.routes.KMeansBenchmark [copies]}. Copies
+ * default to 8, single copy is the sample data without jitter. Full scan of 8 copies takes about 15 minutes.
+ */
+public class KMeansBenchmark {
+
+  private static final String SAMPLE_ROUTES_PATH = "data/DEBRV_DEHAM_historical_routes.geojson";
+  private static final long SEED = 7;
+
+  public static void main(String[] args) throws IOException {
+    int copies = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    File scaledCsvFile = File.createTempFile("scaled_routes", ".csv");
+    scaledCsvFile.deleteOnExit();
+    writeScaledRoutes(new File(SAMPLE_ROUTES_PATH), scaledCsvFile, copies, new Random(SEED));
+
+    RouteTable routes = new CSVRouteReader().readRoutes(scaledCsvFile);
+    int minCoordinates = IntStream.range(0, routes.size()).map(routeId -> routes.getCoordinates(routeId).size())
+        .min().orElse(0);
+    double avgLength = IntStream.range(0, routes.size()).mapToDouble(routes::getRouteLength).average().orElse(0);
+    int[] routeIds = routes.filterByRouteLength(avgLength - avgLength / Routes.CUT_OFF_DISTANCE_FROM_AVG,
+        avgLength + avgLength / Routes.CUT_OFF_DISTANCE_FROM_AVG);
+    List<Coordinate2D[]> simplifiedRoutes = new ArrayList<>();
+    for (int routeId : routeIds) {
+      simplifiedRoutes.add(VisvalingamLineSimplifier
+          .simplify(routes.getCoordinates(routeId).toArray(new Coordinate2D[0]), minCoordinates));
+    }
+    List<Coordinate2D> centers = new ArrayList<>();
+    for (int i = 0; i < minCoordinates; i++) {
+      List<Coordinate2D> coordinates = new ArrayList<>();
+      for (Coordinate2D[] route : simplifiedRoutes) {
+        coordinates.add(route[i]);
+      }
+      centers.add(Coordinate2D.getCentralGeoCoordinate(coordinates));
+    }
+    List<Coordinate2D> cloud = simplifiedRoutes.stream().flatMap(Arrays::stream).collect(Collectors.toList());
+    System.out.printf("routes=%d filtered=%d points=%d centers=%d%n", routes.size(), routeIds.length, cloud.size(),
+        centers.size());
+
+    long start = System.nanoTime();
+    List<Coordinate2D> fullScanRoute = fullScanKMeans(centers, cloud);
+    System.out.printf("full scan : %6d ms%n", (System.nanoTime() - start) / 1000000);
+
+    start = System.nanoTime();
+    List<Coordinate2D> prunedRoute = KMeansClustering.kmeans(centers, cloud);
+    System.out.printf("pruning   : %6d ms, summed difference from full scan %.2e km%n",
+        (System.nanoTime() - start) / 1000000, Coordinate2D.calculateDistance(fullScanRoute, prunedRoute));
+
+    start = System.nanoTime();
+    List<Coordinate2D> sortedCloud = HilbertCurve.sort(cloud);
+    long sorted = System.nanoTime();
+    List<Coordinate2D> hilbertRoute = KMeansClustering.kmeans(centers, sortedCloud);
+    System.out.printf("Hilbert   : %6d ms (sorting %d ms), summed difference from full scan %.2e km%n",
+        (System.nanoTime() - start) / 1000000, (sorted - start) / 1000000,
+        Coordinate2D.calculateDistance(fullScanRoute, hilbertRoute));
+  }
+
+  /**
+   * Writes routes of GeoJSON feature collection to CSV in the input format, each route copied given number of times
+   * and shifted by random jitter (except the first copy)
+   */
+  static void writeScaledRoutes(File geoJsonFile, File csvFile, int copies, Random random) throws IOException {
+    List<JsonObject> features = new ArrayList<>();
+    try (Reader reader = new FileReader(geoJsonFile)) {
+      for (JsonElement feature : new JsonParser().parse(reader).getAsJsonObject().getAsJsonArray("features")) {
+        features.add(feature.getAsJsonObject());
+      }
+    }
+    try (Writer writer = new FileWriter(csvFile); CSVPrinter printer = new CSVPrinter(writer, CSVFormat.RFC4180)) {
+      for (int copy = 0; copy < copies; copy++) {
+        for (JsonObject feature : features) {
+          double jitterX = copy == 0 ? 0 : random.nextGaussian() * 0.002;
+          double jitterY = copy == 0 ? 0 : random.nextGaussian() * 0.001;
+          JsonObject properties = feature.getAsJsonObject("properties");
+          String[] seqs = properties.get("id").getAsString().split("_");
+          StringBuilder points = new StringBuilder("[");
+          int timestamp = 1500000000;
+          for (JsonElement position : feature.getAsJsonObject("geometry").getAsJsonArray("coordinates")) {
+            if (points.length() > 1) {
+              points.append(", ");
+            }
+            points.append(String.format(Locale.ROOT, "[%.6f, %.6f, %d, 10.5]",
+                position.getAsJsonArray().get(0).getAsDouble() + jitterX,
+                position.getAsJsonArray().get(1).getAsDouble() + jitterY, timestamp++));
+          }
+          points.append(']');
+          printer.printRecord(properties.get("vesselId").getAsString() + "_" + copy, seqs[0], seqs[1],
+              properties.get("from").getAsString(), properties.get("to").getAsString(), 0, 0, points);
+        }
+      }
+    }
+  }
+
+  /**
+   * K-means as in {@link KMeansClustering} with every point compared with every center
+   */
+  private static List<Coordinate2D> fullScanKMeans(List<Coordinate2D> centers, List<Coordinate2D> dataset) {
+    double distance;
+    do {
+      List<List<Coordinate2D>> clusters = new ArrayList<>(centers.size());
+      for (int i = 0; i < centers.size(); i++) {
+        clusters.add(new ArrayList<>());
+      }
+      for (Coordinate2D data : dataset) {
+        int nearest = 0;
+        double closest = Double.MAX_VALUE;
+        for (int i = 0; i < centers.size(); i++) {
+          double dist = Coordinate2D.calculateRouteLength(Arrays.asList(data, centers.get(i)));
+          if (dist < closest) {
+            closest = dist;
+            nearest = i;
+          }
+        }
+        clusters.get(nearest).add(data);
+      }
+      List<Coordinate2D> newCenters = clusters.stream().map(Coordinate2D::getCentralGeoCoordinate)
+          .collect(Collectors.toList());
+      distance = Coordinate2D.calculateDistance(centers, newCenters);
+      centers = newCenters;
+    } while (distance != 0);
+    return centers;
+  }
+}
@@ -0,0 +1,84 @@
+package com.ti.routes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class RouteTableTest {
+
+  @Test
+  public void testRouteIdsAreDenseInInputOrder() {
+    RouteTable routes = new RouteTable();
+    List<Coordinate2D> first = Collections.singletonList(new Coordinate2D(8.5, 53.5));
+    List<Coordinate2D> second = Collections.singletonList(new Coordinate2D(9.9, 53.5));
+    assertEquals(0, routes.addRoute("vessel-a", "1", "2", 210, first));
+    assertEquals(1, routes.addRoute("vessel-b", "1", "2", 220, second));
+    // duplicate rows are separate routes
+    assertEquals(2, routes.addRoute("vessel-a", "1", "2", 210, first));
+    assertEquals(3, routes.size());
+
+    assertSame(first, routes.getCoordinates(0));
+    assertSame(second, routes.getCoordinates(1));
+    assertEquals(Arrays.asList(second, first), routes.getCoordinates(new int[]{1, 2}));
+    assertEquals(new RouteInfo("vessel-b", "1", "2", 220), routes.getRouteInfo(1));
+  }
+
+  @Test
+  public void testFilterByRouteLengthExcludesBounds() {
+    RouteTable routes = new RouteTable();
+    double[] lengths = {200, 205, 210, 215, 220};
+    for (double length : lengths) {
+      routes.addRoute("vessel", "1", "2", length, Collections.emptyList());
+    }
+    assertArrayEquals(new int[]{1, 2, 3}, routes.filterByRouteLength(200, 220));
+    assertArrayEquals(new int[]{2}, routes.filterByRouteLength(205, 215));
+    assertArrayEquals(new int[0], routes.filterByRouteLength(210, 210));
+    assertArrayEquals(new int[]{0, 1, 2, 3, 4}, routes.filterByRouteLength(0, Double.MAX_VALUE));
+  }
+
+  @Test
+  public void testFromAndToSeqShareDictionary() {
+    RouteTable routes = new RouteTable();
+    routes.addRoute("vessel-a", "1", "2", 210, Collections.emptyList());
+    routes.addRoute("vessel-a", "2", "3", 210, Collections.emptyList());
+    routes.addRoute("vessel-b", "3", "1", 210, Collections.emptyList());
+
+    assertEquals("1", routes.getFromSeq(0));
+    assertEquals("2", routes.getToSeq(0));
+    assertEquals("2", routes.getFromSeq(1));
+    assertEquals("3", routes.getToSeq(1));
+    assertEquals("3", routes.getFromSeq(2));
+    assertEquals("1", routes.getToSeq(2));
+    assertEquals("vessel-a", routes.getVesselId(1));
+    assertEquals("vessel-b", routes.getVesselId(2));
+  }
+
+  @Test
+  public void testTableGrowsPastInitialCapacity() {
+    RouteTable routes = new RouteTable();
+    for (int i = 0; i < 200; i++) {
+      assertEquals(i, routes.addRoute("vessel-" + i % 3, String.valueOf(i), String.valueOf(i + 1), i,
+          Collections.singletonList(new Coordinate2D(8 + i * 0.01, 53.5))));
+    }
+    assertEquals(200, routes.size());
+    for (int i = 0; i < 200; i++) {
+      assertEquals(new RouteInfo("vessel-" + i % 3, String.valueOf(i), String.valueOf(i + 1), i),
+          routes.getRouteInfo(i));
+      assertEquals(i, routes.getRouteLength(i), 0);
+      assertEquals(8 + i * 0.01, routes.getCoordinates(i).get(0).getLngt(), 0);
+    }
+    assertEquals(198, routes.filterByRouteLength(0, 199).length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRouteIdOutOfRangeIsRejected() {
+    RouteTable routes = new RouteTable();
+    routes.addRoute("vessel", "1", "2", 210, Collections.emptyList());
+    routes.getRouteLength(1);
+  }
+}
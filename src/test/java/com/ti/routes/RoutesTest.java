@@ -1,19 +1,33 @@
 package com.ti.routes;
 
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
+import com.google.gson.JsonParser;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import lombok.val;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class RoutesTest {
 
   public static final String INPUT_CSV_PATH = "data/DEBRV_DEHAM_historical_routes.csv";
   public static final String OUTPUT_GEO_JSON_FILENAME = "DEBRV_DEHAM_avg_route.geojson";
+  public static final String OUTPUT_FLAT_GEOBUF_FILENAME = "DEBRV_DEHAM_avg_route.fgb";
+  private static final double MAX_DISTANCE_FROM_K_MEANS_ROUTE = 5;
+  private static final double KILOMETERS_PER_DEGREE = Math.toRadians(Coordinate2D.AVERAGE_EARTH_RADIUS);
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   @Before
   public void cleanup() {
@@ -21,6 +35,9 @@ public class RoutesTest {
     val outputGeoJsonFile = new File(path.toFile().getParentFile(), OUTPUT_GEO_JSON_FILENAME);
     outputGeoJsonFile.delete();
     assertFalse(outputGeoJsonFile.exists());
+    val outputFlatGeobufFile = new File(path.toFile().getParentFile(), OUTPUT_FLAT_GEOBUF_FILENAME);
+    outputFlatGeobufFile.delete();
+    assertFalse(outputFlatGeobufFile.exists());
   }
 
   @Test
@@ -33,5 +50,98 @@ public class RoutesTest {
     assertTrue(inputCsvFile.exists());
   }
 
+  @Test
+  public void testGeneratingAvgRouteUsingDensityGrid() throws IOException {
+    val path = Paths.get(INPUT_CSV_PATH);
+    val inputCsvFile = path.toFile();
+    val outputGeoJsonFile = new File(path.toFile().getParentFile(), OUTPUT_GEO_JSON_FILENAME);
+    val routes = new Routes();
+    routes.calculateAverageRoute(inputCsvFile, outputGeoJsonFile);
+    val kMeansRoute = readAvgRoute(outputGeoJsonFile);
+    routes.calculateAverageRouteUsingDensityGrid(inputCsvFile, outputGeoJsonFile);
+    val densityGridRoute = readAvgRoute(outputGeoJsonFile);
+
+    assertEquals(kMeansRoute.size(), densityGridRoute.size());
+    // both engines follow the same corridor, density grid route must not shortcut it
+    for (double[] point : densityGridRoute) {
+      assertTrue(distanceToRoute(point, kMeansRoute) < MAX_DISTANCE_FROM_K_MEANS_ROUTE);
+    }
+  }
+
+  @Test
+  public void testWritingAvgRouteWithFilteredRoutesToFlatGeobuf() throws IOException {
+    val path = Paths.get(INPUT_CSV_PATH);
+    val inputCsvFile = path.toFile();
+    val outputFlatGeobufFile = new File(path.toFile().getParentFile(), OUTPUT_FLAT_GEOBUF_FILENAME);
+    val routes = new Routes(new FlatGeobufResultWriter(), true);
+    routes.calculateAverageRouteUsingDensityGrid(inputCsvFile, outputFlatGeobufFile);
+    assertTrue(outputFlatGeobufFile.exists());
+  }
+
+  @Test
+  public void testRoutesAreReadWithGivenReader() throws IOException {
+    RouteTable routeTable = new RouteTable();
+    for (int i = 0; i < 10; i++) {
+      List<Coordinate2D> coordinates = new ArrayList<>();
+      for (int j = 0; j <= 20 + i; j++) {
+        coordinates.add(new Coordinate2D(8.0 + j / (20.0 + i), 54.0 + i * 0.001));
+      }
+      routeTable.addRoute("vessel-" + i, "1", "2", Coordinate2D.calculateRouteLength(coordinates), coordinates);
+    }
+    val inputFile = temporaryFolder.newFile("routes.csv");
+    val outputGeoJsonFile = temporaryFolder.newFile("routes.geojson");
+    List<File> readFiles = new ArrayList<>();
+    RouteReader routeReader = dataFile -> {
+      readFiles.add(dataFile);
+      return routeTable;
+    };
+
+    new Routes(routeReader, new GeoJsonResultWriter(), true).calculateAverageRoute(inputFile, outputGeoJsonFile);
+
+    assertEquals(Collections.singletonList(inputFile), readFiles);
+    // all routes are of similar length, none is filtered out, average route has as many points as the shortest route
+    val avgRoute = readAvgRoute(outputGeoJsonFile);
+    assertEquals(21, avgRoute.size());
+    for (double[] point : avgRoute) {
+      assertTrue(point[1] >= 54.0 && point[1] <= 54.009);
+    }
+    try (FileReader reader = new FileReader(outputGeoJsonFile)) {
+      assertEquals(11, new JsonParser().parse(reader).getAsJsonObject().getAsJsonArray("features").size());
+    }
+  }
+
+  /**
+   * @return coordinates of the first feature (average route) as [longitude, latitude] pairs
+   */
+  static List<double[]> readAvgRoute(File geoJsonFile) throws IOException {
+    try (FileReader reader = new FileReader(geoJsonFile)) {
+      val coordinates = new JsonParser().parse(reader).getAsJsonObject().getAsJsonArray("features").get(0)
+          .getAsJsonObject().getAsJsonObject("geometry").getAsJsonArray("coordinates");
+      List<double[]> route = new ArrayList<>();
+      for (val coordinate : coordinates) {
+        route.add(new double[]{coordinate.getAsJsonArray().get(0).getAsDouble(),
+            coordinate.getAsJsonArray().get(1).getAsDouble()});
+      }
+      return route;
+    }
+  }
+
+  /**
+   * Distance in kilometers between point and the nearest segment of the route, projected onto local plane
+   */
+  private static double distanceToRoute(double[] point, List<double[]> route) {
+    double lngtScale = Math.cos(Math.toRadians(point[1])) * KILOMETERS_PER_DEGREE;
+    double min = Double.POSITIVE_INFINITY;
+    for (int i = 1; i < route.size(); i++) {
+      double ax = (route.get(i - 1)[0] - point[0]) * lngtScale;
+      double ay = (route.get(i - 1)[1] - point[1]) * KILOMETERS_PER_DEGREE;
+      double dx = (route.get(i)[0] - route.get(i - 1)[0]) * lngtScale;
+      double dy = (route.get(i)[1] - route.get(i - 1)[1]) * KILOMETERS_PER_DEGREE;
+      double lengthSquared = dx * dx + dy * dy;
+      double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared));
+      min = Math.min(min, Math.hypot(ax + t * dx, ay + t * dy));
+    }
+    return min;
+  }
 
 }
@@ -0,0 +1,129 @@
+package com.ti.routes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class StreamingLineSimplifierTest {
+
+  private static final double KILOMETERS_PER_DEGREE = Math.toRadians(Coordinate2D.AVERAGE_EARTH_RADIUS);
+
+  @Test
+  public void testDroppedPointsAreWithinToleranceOfSimplifiedRoute() {
+    double tolerance = 0.05;
+    List<Coordinate2D> track = randomTrack(new Random(42), 2000);
+    List<Coordinate2D> simplified = simplify(track, tolerance, StreamingLineSimplifier.DEFAULT_WINDOW_SIZE);
+
+    assertTrue(simplified.size() < track.size());
+    assertSame(track.get(0), simplified.get(0));
+    assertSame(track.get(track.size() - 1), simplified.get(simplified.size() - 1));
+    // simplified vertices are subset of the track, check every dropped point against the segment it was replaced by
+    int vertex = 0;
+    for (int i = 0; i < track.size(); i++) {
+      if (track.get(i) == simplified.get(vertex)) {
+        vertex = Math.min(vertex + 1, simplified.size() - 1);
+        continue;
+      }
+      double deviation = distanceToSegment(track.get(i), simplified.get(vertex - 1), simplified.get(vertex));
+      assertTrue("deviation of point " + i + " is " + deviation + " km", deviation <= tolerance + 1e-9);
+    }
+    assertEquals(simplified.size() - 1, vertex);
+  }
+
+  @Test
+  public void testStraightLineIsReducedToEndPoints() {
+    List<Coordinate2D> track = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      track.add(new Coordinate2D(8.0 + i * 0.01, 54.0 + i * 0.005));
+    }
+    List<Coordinate2D> simplified = simplify(track, 0.001, StreamingLineSimplifier.DEFAULT_WINDOW_SIZE);
+    assertEquals(Arrays.asList(track.get(0), track.get(49)), simplified);
+  }
+
+  @Test
+  public void testFullWindowForcesVertexEveryWindowSizePoints() {
+    List<Coordinate2D> track = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      track.add(new Coordinate2D(8.0 + i * 0.01, 54.0));
+    }
+    List<Coordinate2D> simplified = simplify(track, 1, 5);
+    assertEquals(Arrays.asList(track.get(0), track.get(5), track.get(10), track.get(15), track.get(20), track.get(24)),
+        simplified);
+  }
+
+  @Test
+  public void testFinishEmitsLastPointAndResets() {
+    List<Coordinate2D> output = new ArrayList<>();
+    StreamingLineSimplifier simplifier = new StreamingLineSimplifier(1, output::add);
+    Coordinate2D first = new Coordinate2D(8.0, 54.0);
+    Coordinate2D last = new Coordinate2D(8.1, 54.0);
+    simplifier.accept(first);
+    simplifier.accept(new Coordinate2D(8.05, 54.0));
+    simplifier.accept(last);
+    assertEquals(Arrays.asList(first), output);
+    simplifier.finish();
+    assertEquals(Arrays.asList(first, last), output);
+
+    // next track starts from scratch
+    output.clear();
+    Coordinate2D nextFirst = new Coordinate2D(9.0, 53.0);
+    simplifier.accept(nextFirst);
+    simplifier.finish();
+    assertEquals(Arrays.asList(nextFirst), output);
+
+    // nothing more to emit
+    simplifier.finish();
+    assertEquals(Arrays.asList(nextFirst), output);
+  }
+
+  @Test
+  public void testSinglePointTrack() {
+    Coordinate2D point = new Coordinate2D(8.0, 54.0);
+    assertEquals(Arrays.asList(point), simplify(Arrays.asList(point), 0.05, StreamingLineSimplifier.DEFAULT_WINDOW_SIZE));
+  }
+
+  private static List<Coordinate2D> simplify(List<Coordinate2D> track, double tolerance, int windowSize) {
+    List<Coordinate2D> output = new ArrayList<>();
+    StreamingLineSimplifier simplifier = new StreamingLineSimplifier(tolerance, windowSize, output::add);
+    track.forEach(simplifier);
+    simplifier.finish();
+    return output;
+  }
+
+  /**
+   * Track with random heading changes and steps of about 100 m
+   */
+  private static List<Coordinate2D> randomTrack(Random random, int size) {
+    List<Coordinate2D> track = new ArrayList<>(size);
+    double lngt = 8.0;
+    double lat = 54.0;
+    double heading = 0;
+    for (int i = 0; i < size; i++) {
+      track.add(new Coordinate2D(lngt, lat));
+      heading += random.nextGaussian() * 0.2;
+      lngt += Math.cos(heading) * 0.1 / (KILOMETERS_PER_DEGREE * Math.cos(Math.toRadians(lat)));
+      lat += Math.sin(heading) * 0.1 / KILOMETERS_PER_DEGREE;
+    }
+    return track;
+  }
+
+  /**
+   * Distance in kilometers between point and segment, projected onto local plane around segment start
+   */
+  private static double distanceToSegment(Coordinate2D point, Coordinate2D start, Coordinate2D end) {
+    double lngtScale = Math.cos(Math.toRadians(start.getLat())) * KILOMETERS_PER_DEGREE;
+    double x = (point.getLngt() - start.getLngt()) * lngtScale;
+    double y = (point.getLat() - start.getLat()) * KILOMETERS_PER_DEGREE;
+    double dx = (end.getLngt() - start.getLngt()) * lngtScale;
+    double dy = (end.getLat() - start.getLat()) * KILOMETERS_PER_DEGREE;
+    double lengthSquared = dx * dx + dy * dy;
+    double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (x * dx + y * dy) / lengthSquared));
+    return Math.hypot(x - t * dx, y - t * dy);
+  }
+}